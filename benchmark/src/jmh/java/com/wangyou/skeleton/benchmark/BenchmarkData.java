@@ -0,0 +1,100 @@
+package com.wangyou.skeleton.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * 基准测试用的数据：app中打包的梁平边界、chinahigh.xml，以及生成的100万个点的边界
+ */
+final class BenchmarkData {
+    static final String LIANGPING = "liangping";
+    static final String SYNTHETIC = "synthetic";
+
+    static final String LIANGPING_ASSET = "china_chongqing_liangping.txt";
+    static final String VECTOR_RESOURCE = "chinahigh.xml";
+
+    // 合成边界：一个主区块和若干岛屿，共100万个点
+    static final int SYNTHETIC_POINTS = 1_000_000;
+    private static final int ISLAND_COUNT = 9;
+    private static final int ISLAND_POINTS = 10_000;
+
+    private static byte[] syntheticText;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return 高德格式的边界文本
+     */
+    static byte[] boundaryText(String dataset) throws IOException {
+        switch (dataset) {
+            case LIANGPING:
+                return readResource(LIANGPING_ASSET);
+            case SYNTHETIC:
+                return syntheticText();
+            default:
+                throw new IllegalArgumentException("Unknown dataset: " + dataset);
+        }
+    }
+
+    /**
+     * 把边界文本包装为高德行政区查询接口的返回格式
+     */
+    static byte[] amapJson(byte[] boundaryText) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(boundaryText.length + 128);
+        byte[] head = "{\"status\":\"1\",\"districts\":[{\"name\":\"benchmark\",\"level\":\"district\",\"polyline\":\""
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = "\"}]}".getBytes(StandardCharsets.US_ASCII);
+        outputStream.write(head, 0, head.length);
+        outputStream.write(boundaryText, 0, boundaryText.length);
+        outputStream.write(tail, 0, tail.length);
+        return outputStream.toByteArray();
+    }
+
+    static byte[] readResource(String name) throws IOException {
+        try (InputStream inputStream = BenchmarkData.class.getClassLoader().getResourceAsStream(name)) {
+            if (inputStream == null) {
+                throw new IOException("Resource not found: " + name);
+            }
+            return inputStream.readAllBytes();
+        }
+    }
+
+    /**
+     * 固定随机种子，每次生成的数据相同。主区块是带多个频率起伏的闭合曲线，再加上少量噪声，接近真实边界
+     */
+    private static synchronized byte[] syntheticText() {
+        if (syntheticText != null) {
+            return syntheticText;
+        }
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(SYNTHETIC_POINTS * 22);
+        appendRing(builder, random, 106.5, 30.5, 0.8, SYNTHETIC_POINTS - ISLAND_COUNT * ISLAND_POINTS);
+        for (int i = 0; i < ISLAND_COUNT; i++) {
+            double angle = Math.PI * 2 * i / ISLAND_COUNT;
+            builder.append('|');
+            appendRing(builder, random, 106.5 + Math.cos(angle) * 1.2, 30.5 + Math.sin(angle) * 1.2, 0.05, ISLAND_POINTS);
+        }
+        syntheticText = builder.toString().getBytes(StandardCharsets.US_ASCII);
+        return syntheticText;
+    }
+
+    private static void appendRing(StringBuilder builder, Random random, double centerX, double centerY,
+                                   double radius, int pointCount) {
+        for (int i = 0; i < pointCount; i++) {
+            double angle = Math.PI * 2 * i / pointCount;
+            double r = radius * (1 + 0.15 * Math.sin(7 * angle) + 0.05 * Math.sin(53 * angle)
+                    + 0.01 * Math.sin(401 * angle)) + random.nextGaussian() * radius * 2e-5;
+            if (i > 0) {
+                builder.append(';');
+            }
+            // 与高德数据相同，保留6位小数
+            builder.append(Math.round((centerX + Math.cos(angle) * r) * 1e6) / 1e6)
+                    .append(',')
+                    .append(Math.round((centerY + Math.sin(angle) * r) * 1e6) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.wangyou.skeleton.benchmark;
+
+import com.wangyou.skeleton.map.geometry.BoundaryParser;
+import com.wangyou.skeleton.map.geometry.GeometryBuilder;
+import com.wangyou.skeleton.map.geometry.GeometryIndex;
+import com.wangyou.skeleton.map.geometry.GeometrySimplifier;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+import com.wangyou.skeleton.map.geometry.QuantizedGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析之后的几何处理：组装、简化、建立点击索引、点击查询，以及紧凑缓存的量化与还原。
+ * android.graphics.Path由Skia在native层构建，这里只测到MapGeometry为止，路径的生成见PathBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GeometryBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    // 与紧凑缓存默认精度相近：长边的1/1024
+    private static final int RESOLUTION = 1024;
+
+    @Param({BenchmarkData.LIANGPING, BenchmarkData.SYNTHETIC})
+    public String dataset;
+
+    private MapGeometry geometry;
+    private GeometryBuilder builder;
+    private float tolerance;
+    private GeometryIndex index;
+    private float[] queries;
+    private QuantizedGeometry quantized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        geometry = BoundaryParser.parse(ByteBuffer.wrap(BenchmarkData.boundaryText(dataset)));
+        builder = new GeometryBuilder(geometry.getPointCount());
+        tolerance = Math.max(geometry.getWidth(), geometry.getHeight()) / RESOLUTION;
+        index = GeometryIndex.build(geometry);
+        // 查询点均匀分布在边界范围内，固定随机种子
+        Random random = new Random(42);
+        queries = new float[QUERY_COUNT * 2];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i * 2] = geometry.getLeft() + random.nextFloat() * geometry.getWidth();
+            queries[i * 2 + 1] = geometry.getTop() + random.nextFloat() * geometry.getHeight();
+        }
+        quantized = QuantizedGeometry.encode(geometry, tolerance / 2);
+    }
+
+    /**
+     * 按区块写入builder，反转纬度后生成MapGeometry，builder复用，与解析器的写入过程相同
+     */
+    @Benchmark
+    public MapGeometry buildGeometry() {
+        builder.reset();
+        float[] coordinates = geometry.getCoordinates();
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            int start = geometry.getRingStart(ring);
+            builder.ring(coordinates, start * 2, geometry.getRingEnd(ring) - start);
+        }
+        builder.flipLatitude();
+        return builder.build(MapGeometry.FLAG_LATITUDE_FLIPPED);
+    }
+
+    @Benchmark
+    public MapGeometry simplify() {
+        return GeometrySimplifier.simplify(geometry, tolerance);
+    }
+
+    @Benchmark
+    public GeometryIndex buildIndex() {
+        return GeometryIndex.build(geometry);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERY_COUNT)
+    public void findRing(Blackhole blackhole) {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            blackhole.consume(index.findRing(queries[i * 2], queries[i * 2 + 1]));
+        }
+    }
+
+    @Benchmark
+    public QuantizedGeometry quantize() {
+        return QuantizedGeometry.encode(geometry, tolerance / 2);
+    }
+
+    @Benchmark
+    public MapGeometry dequantize() {
+        return quantized.decode();
+    }
+}
@@ -0,0 +1,40 @@
+package com.wangyou.skeleton.benchmark;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * 旧版MapSkeleton.getPathForProvince的查找：每次把整个chinahigh.xml解析为DOM再按id查找，原样保留作为基准。
+ * Android的DOM把名为id的属性当作ID，JDK的DOM没有DTD时getElementById返回null，这里按id属性遍历代替
+ */
+final class OldProvinceLookup {
+
+    private OldProvinceLookup() {
+    }
+
+    static String getPathData(InputStream inputStream, String city)
+            throws IOException, ParserConfigurationException, SAXException {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(inputStream);
+        Element node = getElementById(document, city);
+        return node.getAttribute("android:pathData");
+    }
+
+    private static Element getElementById(Document document, String id) {
+        NodeList nodes = document.getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            if (id.equals(element.getAttribute("id"))) {
+                return element;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.wangyou.skeleton.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 旧版MapSkeleton.getPathFromAssets的解析：整体读入String后逐级split，原样保留作为基准
+ */
+final class OldSplitParser {
+
+    private OldSplitParser() {
+    }
+
+    static List<float[][]> parse(InputStream inputStream) throws IOException {
+        byte[] bytes = new byte[inputStream.available()];
+        inputStream.read(bytes);
+        inputStream.close();
+        String pathStr = new String(bytes, StandardCharsets.UTF_8);
+        // 区域块String
+        String[] pathArrayStr = pathStr.split("\\|");
+        List<float[][]> pathData = new ArrayList<>();
+        // 经度上面大，小面小，与view的Y轴方向是相反的
+        float max = 0;
+        float min = Float.MAX_VALUE;
+        for (int i = 0; i < pathArrayStr.length; i++) {
+            String[] pathStrArray = pathArrayStr[i].split(";");
+            float[][] pathDataOne = new float[pathStrArray.length][2];
+            for (int j = 0; j < pathStrArray.length; j++) {
+                String[] positions = pathStrArray[j].split(",");
+                pathDataOne[j][0] = Float.parseFloat(positions[0].trim());
+                pathDataOne[j][1] = Float.parseFloat(positions[1].trim());
+                max = Math.max(max, pathDataOne[j][1]);
+                min = Math.min(min, pathDataOne[j][1]);
+            }
+            pathData.add(pathDataOne);
+        }
+        // 画板与纬度的方向是相反的，需要反转下
+        for (int i = 0; i < pathData.size(); i++) {
+            for (int j = 0; j < pathData.get(i).length; j++) {
+                pathData.get(i)[j][1] = max - (pathData.get(i)[j][1] - min);
+            }
+        }
+        return pathData;
+    }
+}
@@ -0,0 +1,85 @@
+package com.wangyou.skeleton.benchmark;
+
+import com.wangyou.skeleton.map.geometry.BoundaryParser;
+import com.wangyou.skeleton.map.geometry.GeometryCodec;
+import com.wangyou.skeleton.map.geometry.JsonBoundaryParser;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getPathFromAssets的解析部分：边界txt、高德JSON，以及构建时编译好的.msk，parseTextSplit为旧的解析
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParseBenchmark {
+    @Param({BenchmarkData.LIANGPING, BenchmarkData.SYNTHETIC})
+    public String dataset;
+
+    private byte[] text;
+    private byte[] json;
+    private byte[] compiled;
+    private byte[] compiledInt;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = BenchmarkData.boundaryText(dataset);
+        json = BenchmarkData.amapJson(text);
+        MapGeometry geometry = BoundaryParser.parse(ByteBuffer.wrap(text));
+        compiled = encode(geometry, false);
+        compiledInt = encode(geometry, true);
+    }
+
+    private static byte[] encode(MapGeometry geometry, boolean intCoordinates) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GeometryCodec.write(geometry, outputStream, intCoordinates);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 与从assets读取时相同，按InputStream分段解析
+     */
+    @Benchmark
+    public MapGeometry parseText() throws IOException {
+        return BoundaryParser.parse(new ByteArrayInputStream(text));
+    }
+
+    /**
+     * 对照：旧的整体读入后split的解析，与parseText的结果相同
+     */
+    @Benchmark
+    public List<float[][]> parseTextSplit() throws IOException {
+        return OldSplitParser.parse(new ByteArrayInputStream(text));
+    }
+
+    @Benchmark
+    public MapGeometry parseJson() throws IOException {
+        return JsonBoundaryParser.parse(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public MapGeometry decodeCompiled() {
+        return GeometryCodec.read(ByteBuffer.wrap(compiled));
+    }
+
+    @Benchmark
+    public MapGeometry decodeCompiledInt() {
+        return GeometryCodec.read(ByteBuffer.wrap(compiledInt));
+    }
+}
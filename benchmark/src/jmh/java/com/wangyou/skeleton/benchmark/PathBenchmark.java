@@ -0,0 +1,93 @@
+package com.wangyou.skeleton.benchmark;
+
+import com.wangyou.skeleton.map.geometry.BoundaryParser;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析之后生成路径和边界：GeometryLoader.buildPath与旧版getPathFromData（List<float[][]>）的对比。
+ * Path使用RecordingPath代替，只比较两种方式本身的遍历和分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PathBenchmark {
+
+    @Param({BenchmarkData.LIANGPING, BenchmarkData.SYNTHETIC})
+    public String dataset;
+
+    private MapGeometry geometry;
+    private List<float[][]> pathData;
+    private RecordingPath path;
+    private final float[] bounds = new float[4];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] text = BenchmarkData.boundaryText(dataset);
+        geometry = BoundaryParser.parse(ByteBuffer.wrap(text));
+        pathData = OldSplitParser.parse(new ByteArrayInputStream(text));
+        path = buildPath();
+    }
+
+    /**
+     * 与GeometryLoader.buildPath相同：直接遍历MapGeometry的坐标数组
+     */
+    @Benchmark
+    public RecordingPath buildPath() {
+        RecordingPath path = new RecordingPath();
+        for (int i = 0; i < geometry.getRingCount(); i++) {
+            int start = geometry.getRingStart(i);
+            int end = geometry.getRingEnd(i);
+            path.moveTo(geometry.getX(start), geometry.getY(start));
+            for (int j = start + 1; j < end; j++) {
+                path.lineTo(geometry.getX(j), geometry.getY(j));
+            }
+            path.lineTo(geometry.getX(end - 1), geometry.getY(end - 1));
+        }
+        return path;
+    }
+
+    /**
+     * 旧版MapSkeleton.getPathFromData：遍历OldSplitParser得到的List<float[][]>，原样保留作为基准
+     */
+    @Benchmark
+    public RecordingPath buildPathFromList() {
+        RecordingPath path = new RecordingPath();
+        for (int i = 0; i < pathData.size(); i++) {
+            float[][] onePath = pathData.get(i);
+            for (int j = 0; j < onePath.length; j++) {
+                if (j == 0) {
+                    path.moveTo(onePath[j][0], onePath[j][1]);
+                } else {
+                    path.lineTo(onePath[j][0], onePath[j][1]);
+                }
+            }
+            path.lineTo(onePath[onePath.length - 1][0], onePath[onePath.length - 1][1]);
+        }
+        return path;
+    }
+
+    /**
+     * 旧版在生成路径后调用computeBounds遍历所有点，现在的边界直接取自MapGeometry，只有PathParser的路径还需要
+     */
+    @Benchmark
+    public float[] computeBounds() {
+        path.computeBounds(bounds);
+        return bounds;
+    }
+}
@@ -0,0 +1,95 @@
+package com.wangyou.skeleton.benchmark;
+
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+import com.wangyou.skeleton.map.geometry.PathDataParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * getPathForProvince：读取chinahigh.xml建立省份索引，再解析单个省份的pathData。
+ * 设备上ProvinceIndex使用XmlPullParser，这里用JDK的StAX代替，与编译任务相同。
+ * findProvinceDom为旧版每个view都要执行一次的DOM查找
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProvinceBenchmark {
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    // 面积较小的直辖市和面积最大的省份
+    @Param({"Chongqing", "Xinjiang Uygur"})
+    public String id;
+
+    private byte[] xml;
+    private String pathData;
+    private XMLInputFactory factory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, XMLStreamException {
+        xml = BenchmarkData.readResource(BenchmarkData.VECTOR_RESOURCE);
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        pathData = indexProvinces().get(id);
+        if (pathData == null) {
+            throw new IllegalStateException("Province not found: " + id);
+        }
+    }
+
+    /**
+     * 与ProvinceIndex.build相同：一次读取整个xml，保存每个省份的pathData
+     */
+    @Benchmark
+    public Map<String, String> indexProvinces() throws XMLStreamException {
+        Map<String, String> pathDataById = new HashMap<>();
+        XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(xml));
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !"path".equals(reader.getLocalName())) {
+                    continue;
+                }
+                String pathId = reader.getAttributeValue(null, "id");
+                String data = reader.getAttributeValue(ANDROID_NAMESPACE, "pathData");
+                if (pathId != null && data != null) {
+                    pathDataById.put(pathId, data);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return pathDataById;
+    }
+
+    /**
+     * 旧版：解析整个DOM后按id查找单个省份，见OldProvinceLookup
+     */
+    @Benchmark
+    public String findProvinceDom() throws IOException, ParserConfigurationException, SAXException {
+        return OldProvinceLookup.getPathData(new ByteArrayInputStream(xml), id);
+    }
+
+    @Benchmark
+    public MapGeometry parsePathData() {
+        return PathDataParser.parse(pathData);
+    }
+}
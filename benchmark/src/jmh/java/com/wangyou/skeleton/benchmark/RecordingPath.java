@@ -0,0 +1,66 @@
+package com.wangyou.skeleton.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * android.graphics.Path在JVM上的替身：与Skia的SkPath相同，把动作和点分别追加到数组中，
+ * 空间不足时按1.5倍扩容。只用于比较不同生成方式的调用次数和分配，不代表设备上的绝对耗时
+ */
+final class RecordingPath {
+    static final byte MOVE = 0;
+    static final byte LINE = 1;
+
+    private byte[] verbs = new byte[16];
+    private float[] points = new float[32];
+    private int verbCount;
+    private int pointCount;
+
+    void moveTo(float x, float y) {
+        add(MOVE, x, y);
+    }
+
+    void lineTo(float x, float y) {
+        add(LINE, x, y);
+    }
+
+    private void add(byte verb, float x, float y) {
+        if (verbCount == verbs.length) {
+            verbs = Arrays.copyOf(verbs, verbCount + (verbCount >> 1));
+        }
+        if (pointCount * 2 == points.length) {
+            points = Arrays.copyOf(points, (pointCount + (pointCount >> 1)) * 2);
+        }
+        verbs[verbCount++] = verb;
+        points[pointCount * 2] = x;
+        points[pointCount * 2 + 1] = y;
+        pointCount++;
+    }
+
+    /**
+     * 与Path.computeBounds相同，遍历所有点
+     *
+     * @param bounds left, top, right, bottom
+     */
+    void computeBounds(float[] bounds) {
+        if (pointCount == 0) {
+            Arrays.fill(bounds, 0);
+            return;
+        }
+        float left = points[0];
+        float top = points[1];
+        float right = left;
+        float bottom = top;
+        for (int i = 1; i < pointCount; i++) {
+            float x = points[i * 2];
+            float y = points[i * 2 + 1];
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x);
+            bottom = Math.max(bottom, y);
+        }
+        bounds[0] = left;
+        bounds[1] = top;
+        bounds[2] = right;
+        bounds[3] = bottom;
+    }
+}
@@ -0,0 +1,144 @@
+package com.wangyou.skeleton.gradle;
+
+import com.wangyou.skeleton.map.geometry.BoundaryParser;
+import com.wangyou.skeleton.map.geometry.GeometryCodec;
+import com.wangyou.skeleton.map.geometry.JsonBoundaryParser;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+import com.wangyou.skeleton.map.geometry.PathDataParser;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * 把边界txt和矢量xml编译为二进制的.msk格式，输出目录作为assets打包
+ */
+public abstract class CompileMapGeometryTask extends DefaultTask {
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    /**
+     * 高德格式的边界文件（txt，或.json/.geojson），输出为同名的.msk。
+     * 需要是以assets目录为根的fileTree，输出保留在assets中的子目录，与运行时按资源路径查找的名字相同
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getBoundaryFiles();
+
+    /**
+     * 矢量xml，每个带id的path输出为 xml名/id.msk
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getVectorFiles();
+
+    /**
+     * 是否以量化后的16位整数保存坐标，坐标部分的大小减半，但解码比float慢，默认保存float
+     */
+    @Input
+    public abstract Property<Boolean> getIntCoordinates();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    public CompileMapGeometryTask() {
+        getIntCoordinates().convention(false);
+    }
+
+    @TaskAction
+    public void compile() throws IOException {
+        File outputDir = getOutputDir().get().getAsFile();
+        getProject().delete(outputDir);
+        boolean intCoordinates = getIntCoordinates().get();
+        // 编译后的名字到源文件，同一目录下同名的txt和json会输出到同一个.msk
+        Map<String, File> compiled = new HashMap<>();
+        getBoundaryFiles().getAsFileTree().visit(details -> {
+            if (details.isDirectory()) {
+                return;
+            }
+            File file = details.getFile();
+            // 相对于assets目录的路径，与GeometryLoader.loadAsset中的resource相同
+            String name = GeometryCodec.assetName(details.getRelativePath().getPathString());
+            File previous = compiled.put(name, file);
+            if (previous != null) {
+                throw new GradleException("Boundary files " + previous + " and " + file + " both compile to " + name);
+            }
+            MapGeometry geometry;
+            try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+                geometry = JsonBoundaryParser.isJsonFile(file.getName())
+                        ? JsonBoundaryParser.parse(inputStream) : BoundaryParser.parse(inputStream);
+            } catch (NumberFormatException | IOException e) {
+                throw new GradleException("Invalid boundary file " + file, e);
+            }
+            try {
+                write(geometry, new File(outputDir, name), intCoordinates);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        for (File file : getVectorFiles()) {
+            compileVector(file, outputDir, intCoordinates);
+        }
+    }
+
+    private void compileVector(File file, File outputDir, boolean intCoordinates) throws IOException {
+        String name = file.getName();
+        String vectorName = name.substring(0, name.lastIndexOf('.'));
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            XMLStreamReader reader = factory.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT || !"path".equals(reader.getLocalName())) {
+                        continue;
+                    }
+                    String id = reader.getAttributeValue(null, "id");
+                    String pathData = reader.getAttributeValue(ANDROID_NAMESPACE, "pathData");
+                    if (id == null || pathData == null) {
+                        continue;
+                    }
+                    MapGeometry geometry;
+                    try {
+                        geometry = PathDataParser.parse(pathData);
+                    } catch (IllegalArgumentException e) {
+                        throw new GradleException("Invalid pathData of " + id + " in " + file, e);
+                    }
+                    write(geometry, new File(outputDir, GeometryCodec.vectorAssetName(vectorName, id)), intCoordinates);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new GradleException("Invalid vector file " + file, e);
+        }
+    }
+
+    private static void write(MapGeometry geometry, File output, boolean intCoordinates) throws IOException {
+        Files.createDirectories(output.getParentFile().toPath());
+        try (OutputStream outputStream = Files.newOutputStream(output.toPath())) {
+            GeometryCodec.write(geometry, outputStream, intCoordinates);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.wangyou.skeleton.map;
+
+/**
+ * 记录MapSkeleton是否已经注册到动画时钟。startAnimation在attach后可能被setter多次调用，
+ * 只有第一次注册时添加ViewTreeObserver监听，之后只请求下一帧；移除时与添加的次数相同。只在主线程使用
+ */
+final class ClockRegistration {
+    interface Target {
+        /**
+         * 添加监听并注册到时钟
+         */
+        void onRegister();
+
+        /**
+         * 已经注册，只需要请求下一帧
+         */
+        void onRegisterAgain();
+
+        /**
+         * 移除onRegister中添加的监听并从时钟移除
+         */
+        void onUnregister();
+    }
+
+    private final Target target;
+    private boolean registered;
+
+    ClockRegistration(Target target) {
+        this.target = target;
+    }
+
+    void register() {
+        if (registered) {
+            target.onRegisterAgain();
+            return;
+        }
+        registered = true;
+        target.onRegister();
+    }
+
+    void unregister() {
+        if (registered) {
+            registered = false;
+            target.onUnregister();
+        }
+    }
+
+    boolean isRegistered() {
+        return registered;
+    }
+}
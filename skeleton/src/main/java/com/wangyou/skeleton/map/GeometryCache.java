@@ -0,0 +1,730 @@
+package com.wangyou.skeleton.map;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.wangyou.skeleton.map.geometry.GeometryIndex;
+import com.wangyou.skeleton.map.geometry.GeometrySimplifier;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+import com.wangyou.skeleton.map.geometry.QuantizedGeometry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 进程内共享的边界数据缓存，key为cityResource，多个相同区域的MapSkeleton只解析一次。
+ * 按字节数而不是条目数淘汰，内存紧张时（onTrimMemory）自动释放。
+ * 紧凑模式下只常驻量化后的数据，路径在使用时才解码，适合缓存大量区域
+ */
+public final class GeometryCache {
+    private static final LruCache<String, Entry> CACHE = new LruCache<String, Entry>(defaultMaxBytes()) {
+        @Override
+        protected int sizeOf(String key, Entry value) {
+            return value.byteSize;
+        }
+    };
+
+    // 紧凑模式下常驻的量化数据，key为compactKey，包含精度。与CACHE合计不超过同一个大小，见trimShared
+    private static final LruCache<String, QuantizedGeometry> COMPACT_CACHE =
+            new LruCache<String, QuantizedGeometry>(defaultMaxBytes()) {
+                @Override
+                protected int sizeOf(String key, QuantizedGeometry value) {
+                    return value.getByteSize();
+                }
+            };
+    // 紧凑模式下解码后的数据，仍有view在使用时共享，不计入缓存大小，key与COMPACT_CACHE相同，只在紧凑模式下使用
+    private static final Map<String, WeakReference<Entry>> LIVE_ENTRIES = new HashMap<>();
+
+    // 正在加载的区域，key与缓存相同
+    private static final ConcurrentHashMap<String, FutureTask<Entry>> LOADING = new ConcurrentHashMap<>();
+
+    private static volatile boolean compactMode;
+    private static volatile int compactResolution;
+    // 单独设置了精度的区域
+    private static final ConcurrentHashMap<String, Integer> REGION_RESOLUTIONS = new ConcurrentHashMap<>();
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final AtomicBoolean CALLBACKS_REGISTERED = new AtomicBoolean();
+    // LruCache自带的计数无法区分peek和obtain，单独统计
+    private static final AtomicInteger HIT_COUNT = new AtomicInteger();
+    private static final AtomicInteger MISS_COUNT = new AtomicInteger();
+
+    private GeometryCache() {
+    }
+
+    /**
+     * 从缓存中获取，没有时加载并放入缓存
+     *
+     * @param province true：chinahigh.xml中的省份，false：assets中的文件
+     */
+    static Entry obtain(Context context, String resource, boolean province) throws IOException {
+        return obtain(context, resource, province, null);
+    }
+
+    /**
+     * @param outline 不为null时，需要解析文本的数据在解析过程中通过它发布轮廓
+     */
+    static Entry obtain(Context context, String resource, boolean province,
+                        @Nullable ProgressiveOutline.Listener outline) throws IOException {
+        registerTrimCallbacks(context);
+        return obtain(new ResourceSource(context.getResources()), resource, province, outline);
+    }
+
+    /**
+     * @param source 没有命中缓存时从这里加载
+     */
+    static Entry obtain(Source source, String resource, boolean province,
+                        @Nullable ProgressiveOutline.Listener outline) throws IOException {
+        boolean compact = compactMode;
+        // 紧凑模式下不同精度的数据分开缓存
+        int pixels = compact ? compactPixels(resource) : 0;
+        String key = compact ? compactKey(resource, pixels) : resource;
+        Entry entry = peekEntry(key, compact);
+        if (entry != null) {
+            HIT_COUNT.incrementAndGet();
+            return entry;
+        }
+        if (compact) {
+            QuantizedGeometry quantized = COMPACT_CACHE.get(key);
+            if (quantized != null) {
+                HIT_COUNT.incrementAndGet();
+                return putLive(key, decode(quantized));
+            }
+        }
+        // 同一区域同时只加载一次，其他线程（如预加载过程中inflate的view）等待同一个结果
+        FutureTask<Entry> task = new FutureTask<>(() -> load(source, resource, key, province, outline, pixels));
+        FutureTask<Entry> loading = LOADING.putIfAbsent(key, task);
+        if (loading == null) {
+            loading = task;
+            task.run();
+        }
+        try {
+            return loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + resource);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            if (loading == task) {
+                LOADING.remove(key, task);
+            }
+        }
+    }
+
+    /**
+     * @param pixels 紧凑模式下量化使用的像素尺寸，不是紧凑模式时为0
+     */
+    private static Entry load(Source source, String resource, String key, boolean province,
+                              @Nullable ProgressiveOutline.Listener outline, int pixels) throws IOException {
+        MISS_COUNT.incrementAndGet();
+        MapGeometry geometry = source.loadGeometry(resource, province, outline);
+        if (pixels > 0 && geometry != null) {
+            // 紧凑模式下原始数据只用于量化，不生成路径
+            QuantizedGeometry quantized = QuantizedGeometry.encode(geometry, maxError(pixels, geometry));
+            COMPACT_CACHE.put(key, quantized);
+            trimShared(CACHE);
+            // 返回解码后的数据，命中与否显示结果一致
+            return putLive(key, decode(quantized));
+        }
+        // 包含曲线的省份不能量化，紧凑模式下也保存完整的路径，key与查询时相同，否则每次都不会命中
+        Entry entry = geometry != null ? GeometryLoader.newEntry(geometry, GeometryLoader.byteSize(geometry))
+                : source.loadProvincePath(resource);
+        entry.cacheKey = key;
+        CACHE.put(key, entry);
+        trimShared(COMPACT_CACHE);
+        return entry;
+    }
+
+    /**
+     * entry生成了简化路径或索引后按新的大小重新计入缓存。
+     * LruCache在放入和移除时按当时sizeOf的值增减，必须先移除、再修改大小、再放回
+     */
+    static void addBytes(Entry entry, int bytes) {
+        synchronized (CACHE) {
+            String key = entry.cacheKey;
+            boolean cached = key != null && CACHE.get(key) == entry;
+            if (cached) {
+                CACHE.remove(key);
+            }
+            entry.byteSize += bytes;
+            if (cached) {
+                CACHE.put(key, entry);
+                trimShared(COMPACT_CACHE);
+            }
+        }
+    }
+
+    /**
+     * 两个缓存合计不超过setMaxBytes设置的大小：放入一个之后，从另一个中淘汰超出的部分。
+     * 切换紧凑模式后另一种模式的数据不再被访问，会先被淘汰
+     */
+    private static void trimShared(LruCache<?, ?> other) {
+        int used = other == CACHE ? COMPACT_CACHE.size() : CACHE.size();
+        other.trimToSize(Math.max(CACHE.maxSize() - used, 0));
+    }
+
+    /**
+     * 只查询缓存，不加载，没有命中时不计入miss。紧凑模式下需要解码的数据不算命中
+     */
+    @Nullable
+    static Entry peek(String resource) {
+        boolean compact = compactMode;
+        Entry entry = peekEntry(compact ? compactKey(resource, compactPixels(resource)) : resource, compact);
+        if (entry != null) {
+            HIT_COUNT.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * @param compact true：先查找紧凑模式下解码后仍在使用的数据，再查找CACHE中不能量化的数据（key带有精度，
+     *                与非紧凑模式的数据不会混用），false：只查找CACHE
+     */
+    @Nullable
+    private static Entry peekEntry(String key, boolean compact) {
+        if (!compact) {
+            return CACHE.get(key);
+        }
+        Entry entry;
+        synchronized (LIVE_ENTRIES) {
+            WeakReference<Entry> reference = LIVE_ENTRIES.get(key);
+            entry = reference != null ? reference.get() : null;
+            if (reference != null && entry == null) {
+                LIVE_ENTRIES.remove(key);
+            }
+        }
+        return entry != null ? entry : CACHE.get(key);
+    }
+
+    private static Entry putLive(String key, Entry entry) {
+        synchronized (LIVE_ENTRIES) {
+            LIVE_ENTRIES.values().removeIf(reference -> reference.get() == null);
+            LIVE_ENTRIES.put(key, new WeakReference<>(entry));
+        }
+        return entry;
+    }
+
+    /**
+     * 紧凑模式下的缓存key：区域加上量化时使用的像素尺寸，修改精度后不会命中旧精度的数据
+     */
+    private static String compactKey(String resource, int pixels) {
+        return resource + '@' + pixels;
+    }
+
+    /**
+     * 区域单独设置的精度，其次为setCompactResolution设置的精度，都没有设置时为屏幕的长边。
+     * 屏幕尺寸取自系统的Resources，与key使用同一个值
+     */
+    private static int compactPixels(String resource) {
+        Resources resources = Resources.getSystem();
+        Integer regionPixels = REGION_RESOLUTIONS.get(resource);
+        int pixels = regionPixels != null ? regionPixels : compactResolution;
+        if (pixels <= 0) {
+            pixels = Math.max(resources.getDisplayMetrics().widthPixels, resources.getDisplayMetrics().heightPixels);
+        }
+        return Math.max(pixels, 1);
+    }
+
+    private static Entry decode(QuantizedGeometry quantized) {
+        MapGeometry geometry = quantized.decode();
+        return GeometryLoader.newEntry(geometry, GeometryLoader.byteSize(geometry));
+    }
+
+    /**
+     * 按区域自己的大小计算允许的偏差：区域铺满pixels像素时偏差不超过半个像素
+     */
+    private static float maxError(int pixels, MapGeometry geometry) {
+        float size = Math.max(geometry.getWidth(), geometry.getHeight());
+        return size > 0 ? size / pixels / 2 : 1;
+    }
+
+    private static void registerTrimCallbacks(Context context) {
+        if (CALLBACKS_REGISTERED.compareAndSet(false, true)) {
+            context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    if (level >= TRIM_MEMORY_BACKGROUND) {
+                        clear();
+                    } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                        CACHE.trimToSize(CACHE.size() / 2);
+                        COMPACT_CACHE.trimToSize(COMPACT_CACHE.size() / 2);
+                    }
+                }
+
+                @Override
+                public void onConfigurationChanged(@NonNull Configuration newConfig) {
+                }
+
+                @Override
+                public void onLowMemory() {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private static int defaultMaxBytes() {
+        return (int) Math.min(Runtime.getRuntime().maxMemory() / 32, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 设置缓存的最大字节数，普通数据和紧凑模式的量化数据合计不超过这个大小
+     */
+    public static void setMaxBytes(int maxBytes) {
+        CACHE.resize(maxBytes);
+        COMPACT_CACHE.resize(maxBytes);
+        trimShared(COMPACT_CACHE);
+    }
+
+    public static int getMaxBytes() {
+        return CACHE.maxSize();
+    }
+
+    public static void clear() {
+        CACHE.evictAll();
+        COMPACT_CACHE.evictAll();
+    }
+
+    /**
+     * 紧凑模式：缓存中只保存量化、差分编码后的坐标，没有view使用的区域内存约为原来的1/4~1/8。
+     * 路径在view使用时才解码，使用期间同时保留解码后的float坐标（用于简化和点击检测）和路径，
+     * 与非紧凑模式相同，不再使用后随之释放。切换时清空已有的缓存，
+     * 关闭后不再共享紧凑模式下解码的数据，之后加载的都是原始精度
+     */
+    public static void setCompactMode(boolean compact) {
+        if (compactMode != compact) {
+            compactMode = compact;
+            clear();
+            synchronized (LIVE_ENTRIES) {
+                LIVE_ENTRIES.clear();
+            }
+        }
+    }
+
+    public static boolean isCompactMode() {
+        return compactMode;
+    }
+
+    /**
+     * 紧凑模式的精度：区域显示的最大像素尺寸，每个区域按自己的大小量化，铺满该尺寸时偏差不超过半个像素。
+     * 默认（0）为屏幕的长边。缓存按精度区分，修改后再次加载的区域按新的精度量化，旧精度的数据随LRU淘汰
+     */
+    public static void setCompactResolution(int pixels) {
+        compactResolution = pixels;
+    }
+
+    public static int getCompactResolution() {
+        return compactResolution;
+    }
+
+    /**
+     * 单独设置某个区域的精度，优先于setCompactResolution，例如只在小图标中显示的区域可以使用较低的精度
+     *
+     * @param resource 与MapSkeleton的cityResource相同
+     * @param pixels   小于等于0时取消单独的设置
+     */
+    public static void setCompactResolution(String resource, int pixels) {
+        if (pixels > 0) {
+            REGION_RESOLUTIONS.put(resource, pixels);
+        } else {
+            REGION_RESOLUTIONS.remove(resource);
+        }
+    }
+
+    /**
+     * @return 没有单独设置时返回setCompactResolution设置的值
+     */
+    public static int getCompactResolution(String resource) {
+        Integer pixels = REGION_RESOLUTIONS.get(resource);
+        return pixels != null ? pixels : compactResolution;
+    }
+
+    /**
+     * 在后台并行加载多个区域并放入缓存，之后这些区域的setCityResource可以直接命中缓存。
+     * 使用异步加载的线程池，线程数不超过CPU核数减一（最多4个）；省份共用一次chinahigh.xml的读取。
+     * 缓存大小不足以放下所有区域时先加载的会被淘汰，需要先调用setMaxBytes或setCompactMode
+     *
+     * @param resources 省份id或assets中的文件名，与MapSkeleton的cityResource相同
+     * @return 所有区域都加载完成（包括失败）后完成
+     */
+    public static Future<PreloadResult> preload(Context context, Collection<String> resources) {
+        return preload(context, resources, null);
+    }
+
+    /**
+     * @param listener 所有区域都加载完成后在主线程回调
+     */
+    public static Future<PreloadResult> preload(Context context, Collection<String> resources,
+                                                @Nullable OnPreloadListener listener) {
+        Context appContext = context.getApplicationContext();
+        Executor executor = GeometryLoader.defaultExecutor();
+        String[] names = new LinkedHashSet<>(resources).toArray(new String[0]);
+        long[] timeNanos = new long[names.length];
+        Exception[] errors = new Exception[names.length];
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[names.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < names.length; i++) {
+            final int index = i;
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                String resource = names[index];
+                long taskStart = System.nanoTime();
+                try {
+                    obtain(appContext, resource, resource.indexOf('.') == -1);
+                } catch (IOException | RuntimeException e) {
+                    errors[index] = e;
+                }
+                timeNanos[index] = System.nanoTime() - taskStart;
+            }, executor);
+        }
+        return CompletableFuture.allOf(tasks).thenApply(ignored -> {
+            PreloadResult result = new PreloadResult(names, timeNanos, errors, System.nanoTime() - start);
+            if (listener != null) {
+                MAIN_HANDLER.post(() -> listener.onPreloaded(result));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 当前缓存的统计数据，可以用来根据线上数据调整缓存大小
+     */
+    public static Stats getStats() {
+        synchronized (CACHE) {
+            return new Stats(HIT_COUNT.get(), MISS_COUNT.get(),
+                    CACHE.evictionCount() + COMPACT_CACHE.evictionCount(),
+                    CACHE.size() + COMPACT_CACHE.size(), CACHE.maxSize());
+        }
+    }
+
+    public interface OnPreloadListener {
+        void onPreloaded(PreloadResult result);
+    }
+
+    /**
+     * 预加载的结果，每个区域的耗时包括等待其他线程加载同一数据的时间，已经缓存的区域耗时接近0
+     */
+    public static final class PreloadResult {
+        private final String[] resources;
+        private final long[] timeNanos;
+        private final Exception[] errors;
+        private final long totalTimeNanos;
+
+        PreloadResult(String[] resources, long[] timeNanos, Exception[] errors, long totalTimeNanos) {
+            this.resources = resources;
+            this.timeNanos = timeNanos;
+            this.errors = errors;
+            this.totalTimeNanos = totalTimeNanos;
+        }
+
+        /**
+         * 去重后的区域，顺序与传入时相同
+         */
+        public List<String> getResources() {
+            return Collections.unmodifiableList(Arrays.asList(resources));
+        }
+
+        /**
+         * @return 不在预加载列表中时返回-1
+         */
+        public long getTimeNanos(String resource) {
+            int index = indexOf(resource);
+            return index == -1 ? -1 : timeNanos[index];
+        }
+
+        /**
+         * @return 加载成功或不在预加载列表中时返回null
+         */
+        @Nullable
+        public Exception getError(String resource) {
+            int index = indexOf(resource);
+            return index == -1 ? null : errors[index];
+        }
+
+        public boolean isSuccessful() {
+            for (Exception error : errors) {
+                if (error != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 从开始到全部完成的耗时
+         */
+        public long getTotalTimeNanos() {
+            return totalTimeNanos;
+        }
+
+        private int indexOf(String resource) {
+            for (int i = 0; i < resources.length; i++) {
+                if (resources[i].equals(resource)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("GeometryCache.PreloadResult[total=")
+                    .append(String.format(Locale.ROOT, "%.2fms", totalTimeNanos / 1e6));
+            for (int i = 0; i < resources.length; i++) {
+                builder.append(", ").append(resources[i]).append('=')
+                        .append(errors[i] != null ? "failed" : String.format(Locale.ROOT, "%.2fms", timeNanos[i] / 1e6));
+            }
+            return builder.append(']').toString();
+        }
+    }
+
+    public static final class Stats {
+        private final int hitCount;
+        private final int missCount;
+        private final int evictionCount;
+        private final int byteSize;
+        private final int maxBytes;
+
+        Stats(int hitCount, int missCount, int evictionCount, int byteSize, int maxBytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.byteSize = byteSize;
+            this.maxBytes = maxBytes;
+        }
+
+        public int getHitCount() {
+            return hitCount;
+        }
+
+        public int getMissCount() {
+            return missCount;
+        }
+
+        public int getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * 当前缓存占用的字节数（估算值）
+         */
+        public int getByteSize() {
+            return byteSize;
+        }
+
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "GeometryCache[hits=%d, misses=%d, evictions=%d, bytes=%d/%d]",
+                    hitCount, missCount, evictionCount, byteSize, maxBytes);
+        }
+    }
+
+    /**
+     * 没有命中缓存时加载区域的数据
+     */
+    interface Source {
+        /**
+         * @param province true：chinahigh.xml中的省份，false：assets中的文件
+         * @return 包含曲线的省份返回null，需要调用loadProvincePath
+         */
+        @Nullable
+        MapGeometry loadGeometry(String resource, boolean province,
+                                 @Nullable ProgressiveOutline.Listener outline) throws IOException;
+
+        /**
+         * 由PathParser直接生成路径，没有geometry
+         */
+        Entry loadProvincePath(String resource) throws IOException;
+    }
+
+    /**
+     * 从应用的assets和chinahigh.xml加载
+     */
+    private static final class ResourceSource implements Source {
+        private final Resources resources;
+
+        ResourceSource(Resources resources) {
+            this.resources = resources;
+        }
+
+        @Nullable
+        @Override
+        public MapGeometry loadGeometry(String resource, boolean province,
+                                        @Nullable ProgressiveOutline.Listener outline) throws IOException {
+            return GeometryLoader.loadGeometry(resources, resource, province, outline);
+        }
+
+        @Override
+        public Entry loadProvincePath(String resource) throws IOException {
+            return GeometryLoader.loadProvincePath(resources, resource);
+        }
+    }
+
+    /**
+     * 缓存的内容，解析后不可变，路径在多个实例之间共享，不能修改
+     */
+    static final class Entry {
+        private static final int MAX_LOD_LEVEL = 24;
+        private static final double LN2 = Math.log(2);
+
+        // 自定义路径、包含曲线的省份（由PathParser生成）没有geometry
+        @Nullable
+        final MapGeometry geometry;
+        final Path path;
+        final RectF bounds;
+        // 估算的内存占用，包括之后生成的简化路径和索引，只在GeometryCache.addBytes中修改
+        volatile int byteSize;
+        // 在CACHE中的key，不在CACHE中（多区域合并、自定义数据、紧凑模式解码）时为null
+        volatile String cacheKey;
+        // 生成path的耗时，不是由geometry生成时为0
+        final long pathBuildNanos;
+
+        // 按精度分级的简化路径，第k级的容差为max(宽,高)/2^k，在后台生成后发布，绘制时只读取
+        private final AtomicReferenceArray<Path> lodPaths = new AtomicReferenceArray<>(MAX_LOD_LEVEL + 1);
+        private final Object lodLock = new Object();
+        // 生成后通过volatile发布，peekIndex不加锁，生成索引时不影响主线程读取
+        private volatile GeometryIndex index;
+        private final Object indexLock = new Object();
+
+        Entry(@Nullable MapGeometry geometry, Path path, RectF bounds, int byteSize, long pathBuildNanos) {
+            this.geometry = geometry;
+            this.path = path;
+            this.bounds = bounds;
+            this.byteSize = byteSize;
+            this.pathBuildNanos = pathBuildNanos;
+        }
+
+        /**
+         * @param tolerance 允许的最大偏差，与坐标同单位
+         * @return 容差不超过tolerance的最粗一级，不需要简化（直接使用path）时返回-1
+         */
+        int lodLevel(float tolerance) {
+            if (geometry == null || !(tolerance > 0)) {
+                return -1;
+            }
+            float size = Math.max(geometry.getWidth(), geometry.getHeight());
+            if (size <= 0) {
+                return -1;
+            }
+            int level = Math.max(0, (int) Math.ceil(Math.log(size / tolerance) / LN2));
+            return level > MAX_LOD_LEVEL ? -1 : level;
+        }
+
+        /**
+         * 绘制时使用，不生成也不等待
+         *
+         * @return 简化后的路径，不需要简化时返回path，还没有生成时返回null，可以先用path绘制
+         */
+        @Nullable
+        Path peekLodPath(float tolerance) {
+            int level = lodLevel(tolerance);
+            return level == -1 ? path : lodPaths.get(level);
+        }
+
+        /**
+         * 获取简化后的路径，偏差不超过tolerance，没有生成时先生成，需要简化和创建Path，不要在主线程调用
+         *
+         * @param tolerance 允许的最大偏差，与坐标同单位
+         */
+        Path getLodPath(float tolerance) {
+            int level = lodLevel(tolerance);
+            if (level == -1) {
+                return path;
+            }
+            Path lodPath = lodPaths.get(level);
+            if (lodPath != null) {
+                return lodPath;
+            }
+            synchronized (lodLock) {
+                lodPath = lodPaths.get(level);
+                if (lodPath == null) {
+                    float size = Math.max(geometry.getWidth(), geometry.getHeight());
+                    MapGeometry simplified = GeometrySimplifier.simplify(geometry, size / (1 << level));
+                    // 简化效果不明显时直接使用原路径，节省内存
+                    lodPath = simplified.getPointCount() > geometry.getPointCount() * 0.9f
+                            ? path : GeometryLoader.buildPath(simplified);
+                    lodPaths.set(level, lodPath);
+                    if (lodPath != path) {
+                        addBytes(this, GeometryLoader.pathByteSize(simplified));
+                    }
+                }
+            }
+            return lodPath;
+        }
+
+        /**
+         * 点击判断用的网格索引，第一次用到时生成，大的边界需要较长时间，不要在主线程调用
+         *
+         * @return 没有geometry时返回null
+         */
+        @Nullable
+        GeometryIndex getIndex() {
+            GeometryIndex result = index;
+            if (result != null || geometry == null) {
+                return result;
+            }
+            // 只有同时生成同一个索引的后台线程互相等待，与getLodPath的锁分开
+            synchronized (indexLock) {
+                result = index;
+                if (result == null) {
+                    result = GeometryIndex.build(geometry);
+                    index = result;
+                    addBytes(this, result.getByteSize());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 不加锁，其他线程正在生成索引时不会等待
+         *
+         * @return 还没有生成时返回null，不会生成
+         */
+        @Nullable
+        GeometryIndex peekIndex() {
+            return index;
+        }
+    }
+}
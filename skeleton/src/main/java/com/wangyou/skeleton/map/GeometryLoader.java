@@ -0,0 +1,285 @@
+package com.wangyou.skeleton.map;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.os.Process;
+import android.os.Trace;
+
+import androidx.annotation.Nullable;
+import androidx.core.graphics.PathParser;
+
+import com.wangyou.skeleton.map.geometry.BoundaryParser;
+import com.wangyou.skeleton.map.geometry.GeometryBuilder;
+import com.wangyou.skeleton.map.geometry.GeometryCodec;
+import com.wangyou.skeleton.map.geometry.JsonBoundaryParser;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+import com.wangyou.skeleton.map.geometry.PathDataParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 从assets加载边界数据：优先使用构建时编译好的.msk文件（内存映射，无文本解析），没有时再解析原始文本
+ */
+final class GeometryLoader {
+    // 省级地图矢量xml的资源名，编译后位于assets/chinahigh/
+    static final String VECTOR_NAME = "chinahigh";
+
+    // assets目录 -> 目录下的文件名，避免每次用异常判断文件是否存在
+    private static final Map<String, Set<String>> ASSET_LISTS = new ConcurrentHashMap<>();
+
+    private static volatile Executor defaultExecutor;
+
+    private GeometryLoader() {
+    }
+
+    /**
+     * 异步加载默认使用的线程池，空闲时线程会退出
+     */
+    static Executor defaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (GeometryLoader.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+                    AtomicInteger count = new AtomicInteger();
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(() -> {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }, "MapSkeleton-loader-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 只解析为MapGeometry，不生成路径，在哪个线程调用都可以
+     *
+     * @param province true：chinahigh.xml中的省份，false：assets中的文件
+     * @param outline  不为null时，assets中的文本数据在解析过程中通过它发布轮廓
+     * @return 省份的pathData包含曲线等命令、只能交给PathParser时为null，见loadProvincePath
+     */
+    @Nullable
+    static MapGeometry loadGeometry(Resources resources, String resource, boolean province,
+                                    @Nullable ProgressiveOutline.Listener outline) throws IOException {
+        if (!province) {
+            return loadAsset(resources.getAssets(), resource, outline);
+        }
+        MapGeometry geometry = loadCompiledProvince(resources.getAssets(), resource);
+        if (geometry != null) {
+            return geometry;
+        }
+        // 没有编译好的数据，从索引中取出该省份的pathData单独解析
+        String pathData = provincePathData(resources, resource);
+        Trace.beginSection("MapSkeleton#parse");
+        try {
+            return PathDataParser.parse(pathData);
+        } catch (IllegalArgumentException e) {
+            return null;
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * loadGeometry返回null时，由PathParser直接生成路径
+     */
+    static GeometryCache.Entry loadProvincePath(Resources resources, String resource) throws IOException {
+        String pathData = provincePathData(resources, resource);
+        long start = System.nanoTime();
+        Trace.beginSection("MapSkeleton#PathParser");
+        Path path;
+        try {
+            path = PathParser.createPathFromPathData(pathData);
+        } finally {
+            Trace.endSection();
+        }
+        RectF bounds = computeBounds(path);
+        return new GeometryCache.Entry(null, path, bounds, pathData.length() * 2, System.nanoTime() - start);
+    }
+
+    private static String provincePathData(Resources resources, String resource) throws IOException {
+        String pathData = ProvinceIndex.get(resources).getPathData(resource);
+        if (pathData == null) {
+            throw new IOException("Province not found: " + resource);
+        }
+        return pathData;
+    }
+
+    /**
+     * 生成路径，记录耗时
+     */
+    static GeometryCache.Entry newEntry(MapGeometry geometry, int byteSize) {
+        long start = System.nanoTime();
+        Path path = buildPath(geometry);
+        return new GeometryCache.Entry(geometry, path, bounds(geometry), byteSize, System.nanoTime() - start);
+    }
+
+    /**
+     * 从解析好的边界数据生成路径，不经过List<float[][]>
+     */
+    static Path buildPath(MapGeometry geometry) {
+        Trace.beginSection("MapSkeleton#buildPath");
+        Path path = new Path();
+        for (int i = 0; i < geometry.getRingCount(); i++) {
+            int start = geometry.getRingStart(i);
+            int end = geometry.getRingEnd(i);
+            path.moveTo(geometry.getX(start), geometry.getY(start));
+            for (int j = start + 1; j < end; j++) {
+                path.lineTo(geometry.getX(j), geometry.getY(j));
+            }
+            path.lineTo(geometry.getX(end - 1), geometry.getY(end - 1));
+        }
+        Trace.endSection();
+        return path;
+    }
+
+    /**
+     * 没有geometry的路径只能遍历计算边界
+     */
+    static RectF computeBounds(Path path) {
+        Trace.beginSection("MapSkeleton#computeBounds");
+        RectF bounds = new RectF();
+        path.computeBounds(bounds, true);
+        Trace.endSection();
+        return bounds;
+    }
+
+    static RectF bounds(MapGeometry geometry) {
+        return new RectF(geometry.getLeft(), geometry.getTop(), geometry.getRight(), geometry.getBottom());
+    }
+
+    /**
+     * 估算占用的内存：坐标数组 + 路径
+     */
+    static int byteSize(MapGeometry geometry) {
+        return geometry.getCoordinates().length * 4 + pathByteSize(geometry);
+    }
+
+    /**
+     * 估算由geometry生成的路径占用的内存：路径中的点(float x,y)和动作(byte)
+     */
+    static int pathByteSize(MapGeometry geometry) {
+        return geometry.getRingCount() * 4 + geometry.getPointCount() * 9 + 64;
+    }
+
+    static MapGeometry loadAsset(AssetManager assets, String resource,
+                                 @Nullable ProgressiveOutline.Listener outline) throws IOException {
+        if (resource.endsWith(GeometryCodec.EXTENSION)) {
+            return loadCompiled(assets, resource);
+        }
+        String compiled = GeometryCodec.assetName(resource);
+        if (hasAsset(assets, compiled)) {
+            return loadCompiled(assets, compiled);
+        }
+        boolean json = JsonBoundaryParser.isJsonFile(resource);
+        // 文本边读边解析，读取的耗时也计入parse
+        Trace.beginSection("MapSkeleton#parse");
+        try (InputStream inputStream = assets.open(resource, AssetManager.ACCESS_STREAMING)) {
+            if (outline == null) {
+                // GeoJSON或高德行政区查询接口返回的JSON
+                return json ? JsonBoundaryParser.parse(inputStream) : BoundaryParser.parse(inputStream);
+            }
+            // 边解析边发布轮廓，结果与上面相同
+            GeometryBuilder builder = new GeometryBuilder();
+            ProgressiveOutline sink = new ProgressiveOutline(builder, true, outline);
+            if (json) {
+                JsonBoundaryParser.parse(inputStream, sink);
+            } else {
+                BoundaryParser.parse(inputStream, sink);
+            }
+            if (json && builder.getPointCount() == 0) {
+                throw new IOException("No coordinates or polyline found");
+            }
+            builder.flipLatitude();
+            return builder.build(MapGeometry.FLAG_LATITUDE_FLIPPED);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * @return 没有编译好的省级数据时返回null
+     */
+    @Nullable
+    static MapGeometry loadCompiledProvince(AssetManager assets, String id) throws IOException {
+        String name = GeometryCodec.vectorAssetName(VECTOR_NAME, id);
+        return hasAsset(assets, name) ? loadCompiled(assets, name) : null;
+    }
+
+    static MapGeometry loadCompiled(AssetManager assets, String name) throws IOException {
+        ByteBuffer buffer;
+        Trace.beginSection("MapSkeleton#readAsset");
+        try (AssetFileDescriptor descriptor = assets.openFd(name);
+             FileInputStream inputStream = descriptor.createInputStream()) {
+            buffer = inputStream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+        } catch (FileNotFoundException e) {
+            // 压缩过的asset不能openFd（需要在build.gradle中noCompress 'msk'），只能整体读取一次
+            try (InputStream inputStream = assets.open(name, AssetManager.ACCESS_BUFFER)) {
+                buffer = ByteBuffer.wrap(readFully(inputStream));
+            }
+        } finally {
+            Trace.endSection();
+        }
+        Trace.beginSection("MapSkeleton#parse");
+        try {
+            return GeometryCodec.read(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid compiled geometry: " + name, e);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private static boolean hasAsset(AssetManager assets, String name) throws IOException {
+        int slash = name.lastIndexOf('/');
+        String dir = slash == -1 ? "" : name.substring(0, slash);
+        Set<String> names = ASSET_LISTS.get(dir);
+        if (names == null) {
+            String[] list = assets.list(dir);
+            names = list == null ? Collections.emptySet() : new HashSet<>(Arrays.asList(list));
+            ASSET_LISTS.put(dir, names);
+        }
+        return names.contains(name.substring(slash + 1));
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(inputStream.available(), 8192));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,140 @@
+package com.wangyou.skeleton.map;
+
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 扫过图形的亮条，MapSkeleton和MapSkeletonDrawable共用。
+ * 渐变只在边界、角度、颜色变化时重新创建，移动通过shader的矩阵平移实现，每帧不创建对象
+ */
+final class LightBand {
+    // 亮条渐变中可见的部分，两侧是透明的
+    static final float LIGHT_START = 0.45f;
+    static final float LIGHT_END = 0.55f;
+
+    // 亮条可见部分的四边形，只在其中填充路径
+    final float[] quad = new float[8];
+    private final Path clip = new Path();
+    private final Matrix shaderMatrix = new Matrix();
+    private LinearGradient shader;
+    // 创建shader时的边界、角度、颜色，变化后需要重新创建
+    private RectF shaderBounds;
+    private float shaderAngle;
+    private int shaderColor;
+
+    /**
+     * 用paint在亮条所在的区域内填充path
+     *
+     * @param transform 不为null时path已经变换到屏幕坐标系，亮条也要做同样的变换
+     */
+    void draw(Canvas canvas, Path path, Paint paint, RectF rectF, float angle, int color, float process,
+              @Nullable Matrix transform) {
+        if (!computeQuad(rectF, angle, process)) {
+            // 亮条还没进入或已经离开边界
+            return;
+        }
+        if (transform != null) {
+            transform.mapPoints(quad);
+        }
+        int saveCount = canvas.save();
+        // 渐变两侧是透明的，只填充亮条所在的区域
+        clip.rewind();
+        clip.moveTo(quad[0], quad[1]);
+        clip.lineTo(quad[2], quad[3]);
+        clip.lineTo(quad[4], quad[5]);
+        clip.lineTo(quad[6], quad[7]);
+        clip.close();
+        canvas.clipPath(clip);
+        updateShader(paint, rectF, angle, color, process, transform);
+        canvas.drawPath(path, paint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void updateShader(Paint paint, RectF rectF, float angle, int color, float process,
+                              @Nullable Matrix transform) {
+        float angleLength = (float) (rectF.width() * Math.tan(Math.toRadians(angle)));
+        if (shader == null || shaderBounds != rectF || shaderAngle != angle || shaderColor != color) {
+            float start = -rectF.width() / 2 // 亮条渐变在0.5处，所以需要偏移
+                    - angleLength; // 没有角度时，亮条是垂直的，有角度后需要添加偏移
+            shader = new LinearGradient(rectF.left + start, rectF.top, rectF.right + start, rectF.top + angleLength,
+                    new int[]{0x00ffffff, color, color, 0x00ffffff},
+                    new float[]{LIGHT_START, 0.499f, 0.501f, LIGHT_END},
+                    Shader.TileMode.CLAMP);
+            shaderBounds = rectF;
+            shaderAngle = angle;
+            shaderColor = color;
+        }
+        if (paint.getShader() != shader) {
+            paint.setShader(shader);
+        }
+        shaderMatrix.setTranslate((rectF.width() + 2 * angleLength) * process, 0);
+        if (transform != null) {
+            // 渐变定义在路径坐标系中，路径已变换到屏幕坐标系时渐变也要一起变换
+            shaderMatrix.postConcat(transform);
+        }
+        shader.setLocalMatrix(shaderMatrix);
+    }
+
+    /**
+     * 计算亮条可见部分（渐变的LIGHT_START~LIGHT_END）与边界相交的四边形，路径坐标系，结果写入quad
+     *
+     * @param process 亮条的进度，0~1
+     * @return 亮条与边界不相交时返回false
+     */
+    boolean computeQuad(RectF rectF, float angle, float process) {
+        float width = rectF.width();
+        float angleLength = (float) (width * Math.tan(Math.toRadians(angle)));
+        // 与updateShader中渐变的起点、方向相同
+        float x0 = rectF.left - width / 2 - angleLength + (width + 2 * angleLength) * process;
+        float y0 = rectF.top;
+        float lengthSquared = width * width + angleLength * angleLength;
+        if (!(lengthSquared > 0) || Float.isInfinite(lengthSquared)) {
+            quad[0] = rectF.left;
+            quad[1] = rectF.top;
+            quad[2] = rectF.right;
+            quad[3] = rectF.top;
+            quad[4] = rectF.right;
+            quad[5] = rectF.bottom;
+            quad[6] = rectF.left;
+            quad[7] = rectF.bottom;
+            return true;
+        }
+        // 边界四个角在渐变方向(width, angleLength)和垂直方向上的投影
+        float minT = Float.MAX_VALUE;
+        float maxT = -Float.MAX_VALUE;
+        float minS = Float.MAX_VALUE;
+        float maxS = -Float.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            float dx = (i == 0 || i == 3 ? rectF.left : rectF.right) - x0;
+            float dy = (i < 2 ? rectF.top : rectF.bottom) - y0;
+            float t = (dx * width + dy * angleLength) / lengthSquared;
+            float s = (dy * width - dx * angleLength) / lengthSquared;
+            minT = Math.min(minT, t);
+            maxT = Math.max(maxT, t);
+            minS = Math.min(minS, s);
+            maxS = Math.max(maxS, s);
+        }
+        float start = Math.max(LIGHT_START, minT);
+        float end = Math.min(LIGHT_END, maxT);
+        if (start >= end) {
+            return false;
+        }
+        // 亮条两条边上的点：起点 + t * 渐变方向 + s * 垂直方向
+        quad[0] = x0 + start * width - minS * angleLength;
+        quad[1] = y0 + start * angleLength + minS * width;
+        quad[2] = x0 + start * width - maxS * angleLength;
+        quad[3] = y0 + start * angleLength + maxS * width;
+        quad[4] = x0 + end * width - maxS * angleLength;
+        quad[5] = y0 + end * angleLength + maxS * width;
+        quad[6] = x0 + end * width - minS * angleLength;
+        quad[7] = y0 + end * angleLength + minS * width;
+        return true;
+    }
+}
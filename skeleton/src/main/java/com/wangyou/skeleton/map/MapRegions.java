@@ -0,0 +1,103 @@
+package com.wangyou.skeleton.map;
+
+import android.content.Context;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import com.wangyou.skeleton.map.geometry.GeometryBuilder;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 多个区域合并到同一个坐标系中，背景、亮条、边界用合并后的路径各绘制一次。
+ * 每个区域单独缓存在GeometryCache中，合并结果只属于当前的view
+ */
+final class MapRegions {
+    final String[] resources;
+    // 每个区域自己的缓存，区域单独着色时使用
+    final GeometryCache.Entry[] entries;
+    // 每个区域在合并坐标系中的纵向偏移
+    final float[] offsetsY;
+    // 第i个区域在合并后geometry中的区块为[ringOffsets[i], ringOffsets[i+1])，geometry为null时无效
+    final int[] ringOffsets;
+    // 合并后的路径和边界
+    final GeometryCache.Entry entry;
+
+    private MapRegions(String[] resources, GeometryCache.Entry[] entries, float[] offsetsY, int[] ringOffsets,
+                       GeometryCache.Entry entry) {
+        this.resources = resources;
+        this.entries = entries;
+        this.offsetsY = offsetsY;
+        this.ringOffsets = ringOffsets;
+        this.entry = entry;
+    }
+
+    /**
+     * @param resources 省份id或assets中的文件名，与cityResource相同，不要混用两种，二者的坐标系不同
+     */
+    static MapRegions load(Context context, List<String> resources) throws IOException {
+        int count = resources.size();
+        String[] names = resources.toArray(new String[0]);
+        GeometryCache.Entry[] entries = new GeometryCache.Entry[count];
+        float[] offsetsY = new float[count];
+        boolean allGeometry = true;
+        int pointCount = 0;
+        for (int i = 0; i < count; i++) {
+            String resource = names[i];
+            entries[i] = GeometryCache.obtain(context, resource, resource.indexOf('.') == -1);
+            MapGeometry geometry = entries[i].geometry;
+            if (geometry == null) {
+                allGeometry = false;
+            } else {
+                pointCount += geometry.getPointCount();
+                if (geometry.isLatitudeFlipped()) {
+                    // 翻转后 y = top + bottom - 纬度，减去top + bottom后所有区域都是 y = -纬度
+                    offsetsY[i] = -(geometry.getTop() + geometry.getBottom());
+                }
+            }
+        }
+        int[] ringOffsets = new int[count + 1];
+        GeometryCache.Entry entry;
+        if (allGeometry) {
+            GeometryBuilder builder = new GeometryBuilder(pointCount);
+            for (int i = 0; i < count; i++) {
+                MapGeometry geometry = entries[i].geometry;
+                for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+                    builder.beginRing();
+                    for (int point = geometry.getRingStart(ring); point < geometry.getRingEnd(ring); point++) {
+                        builder.point(geometry.getX(point), geometry.getY(point) + offsetsY[i]);
+                    }
+                    builder.endRing();
+                }
+                ringOffsets[i + 1] = builder.getRingCount();
+            }
+            MapGeometry geometry = builder.build(0);
+            entry = GeometryLoader.newEntry(geometry, GeometryLoader.byteSize(geometry));
+        } else {
+            // 包含PathParser生成的路径时只能合并路径
+            long start = System.nanoTime();
+            Path path = new Path();
+            for (int i = 0; i < count; i++) {
+                path.addPath(entries[i].path, 0, offsetsY[i]);
+            }
+            RectF bounds = GeometryLoader.computeBounds(path);
+            entry = new GeometryCache.Entry(null, path, bounds, 0, System.nanoTime() - start);
+        }
+        return new MapRegions(names, entries, offsetsY, ringOffsets, entry);
+    }
+
+    int size() {
+        return resources.length;
+    }
+
+    /**
+     * @return 第index个区域当前精度下的路径，坐标系为该区域自己的坐标系，需要加上offsetsY[index]，
+     * 简化路径还没有在后台生成时返回完整的路径
+     */
+    Path getPath(int index, float tolerance) {
+        Path path = entries[index].peekLodPath(tolerance);
+        return path != null ? path : entries[index].path;
+    }
+}
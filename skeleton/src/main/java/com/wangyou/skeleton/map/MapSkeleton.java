@@ -1,51 +1,69 @@
 package com.wangyou.skeleton.map;
 
-import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.LinearGradient;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Shader;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.graphics.PathParser;
+import androidx.annotation.RequiresApi;
 
 import com.wangyou.skeleton.R;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
+import com.wangyou.skeleton.map.geometry.GeometryBuilder;
+import com.wangyou.skeleton.map.geometry.GeometryIndex;
+import com.wangyou.skeleton.map.geometry.GeometrySink;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
 
 public class MapSkeleton extends View {
     // 动画类型：线条/透明度
     public final static int ANIMATION_LINE = 0;
 
     public final static int ANIMATION_ALPHA = 1;
+    // 透明度闪烁，修改各个Paint的透明度而不是View的透明度，不需要离屏缓冲
+    public final static int ANIMATION_PAINT_ALPHA = 2;
+    // 点击回弹：修改布局大小/缩放绘制
+    public final static int BOUNCE_LAYOUT = 0;
+
+    public final static int BOUNCE_SCALE = 1;
+    // 来自GeometryCache时在多个实例间共享，不要直接修改
     protected Path path;
     private RectF rectF;
 
     private float process;
+    // ANIMATION_PAINT_ALPHA当前的透明度
+    private float pulseAlpha = 1f;
 
     // 属性
     private int mBackground = Color.GRAY;
@@ -68,9 +86,86 @@ public class MapSkeleton extends View {
     private float animationMinAlpha = 0.4f;
 
     private CreatePath createPath;
+    private GeometryProvider geometryProvider;
+
+    // 绘制用的对象只在属性变化时更新，onDraw中不创建对象
+    private final SkeletonPainter painter = new SkeletonPainter();
+    // 软件绘制时亮条扫过的区域
+    private final Rect lightDirty = new Rect();
+    private final Rect lastLightDirty = new Rect();
+
+    // 当前绘制的路径，可能是path简化后的路径
+    private Path drawPath;
+    // path对应的缓存，默认图形、占位图形时为null
+    private GeometryCache.Entry entry;
+
+    // 多区域模式：多个区域合并绘制，可以分别设置背景色
+    private List<String> regionResources;
+    private MapRegions regions;
+    private int[] regionColors;
+    private final Paint regionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // applyPaintAlpha设置的透明度，区域背景色使用
+    private float paintAlpha = 1f;
+    private float simplifyTolerance;
+    // 正在后台生成简化路径的entry和容差，避免重复提交
+    private GeometryCache.Entry lodEntry;
+    private float lodTolerance;
+
+    // 把路径坐标适配到view中间的矩阵，只在大小或边界变化时重新计算
+    private final Matrix viewportMatrix = new Matrix();
+    private float viewportScale = 1;
+    private RectF viewportBounds;
+    private int viewportWidth;
+    private int viewportHeight;
+    private int viewportVersion;
+    // 点击判断时把触摸点变换回路径坐标系
+    private final Matrix viewportInverse = new Matrix();
+    private final float[] touchPoint = new float[2];
+    private int pressedRing = -1;
+    // 按下时使用的索引，抬起时用同一个判断，中途生成完成的索引不影响这次点击
+    private GeometryIndex pressedIndex;
+    // 正在后台生成点击索引的entry
+    private GeometryCache.Entry indexingEntry;
+    private OnRegionClickListener onRegionClickListener;
+    // 预先变换到屏幕坐标系的路径，绘制时画布不需要再缩放
+    private boolean bakeTransform;
+    private final Path bakedPath = new Path();
+    private Path bakedSource;
+    private int bakedVersion = -1;
+
+    // 静态层缓存：背景、文字、边界，API 29以上硬件加速时用RenderNode，否则用Bitmap，默认关闭
+    private boolean staticLayerEnabled;
+    private boolean staticLayerDirty = true;
+    private Path staticLayerPath;
+    private Bitmap staticLayerBitmap;
+    private Canvas staticLayerCanvas;
+    private RenderNode staticLayerNode;
+    private final Paint staticLayerPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // 异步加载
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private boolean asyncLoad;
+    private Executor loadExecutor;
+    private Path placeholderPath;
+    private OnGeometryReadyListener onGeometryReadyListener;
+    private FutureTask<?> pendingLoad;
+    // 只在主线程修改，加载线程读取以判断是否已经被新的加载取代
+    private volatile int loadGeneration;
+    // 渐进加载：解析完成前只画已经解析出的轮廓
+    private boolean progressiveLoad;
+    private boolean outlinePreview;
+
+    // 性能数据，见getMetrics()
+    private long loadStartNanos;
+    private long loadTimeNanos;
+    private long pathBuildTimeNanos;
+    private final int[] drawTimeHistogram = new int[Metrics.DRAW_TIME_BUCKET_COUNT];
+    private long maxDrawTimeNanos;
+    private long animationFrameCount;
 
     public MapSkeleton(Context context) {
         super(context);
+        updatePaints();
     }
 
     public MapSkeleton(Context context, @Nullable AttributeSet attrs) {
@@ -100,8 +195,22 @@ public class MapSkeleton extends View {
         lightColor = typedArray.getColor(R.styleable.MapSkeleton_map_skeleton_light_color, Color.WHITE);
         animationMaxAlpha = typedArray.getFloat(R.styleable.MapSkeleton_map_skeleton_alpha_max, 1f);
         animationMinAlpha = typedArray.getFloat(R.styleable.MapSkeleton_map_skeleton_alpha_min, 0.4f);
+        asyncLoad = typedArray.getBoolean(R.styleable.MapSkeleton_map_skeleton_async_load, false);
+        progressiveLoad = typedArray.getBoolean(R.styleable.MapSkeleton_map_skeleton_progressive_load, false);
+        staticLayerEnabled = typedArray.getBoolean(R.styleable.MapSkeleton_map_skeleton_static_layer, false);
+        simplifyTolerance = typedArray.getFloat(R.styleable.MapSkeleton_map_skeleton_simplify_tolerance, 0);
+        bakeTransform = typedArray.getBoolean(R.styleable.MapSkeleton_map_skeleton_bake_transform, false);
+        maxFrameRate = typedArray.getInt(R.styleable.MapSkeleton_map_skeleton_max_fps, 0);
+        bounceMode = typedArray.getInt(R.styleable.MapSkeleton_map_skeleton_bounce_mode, BOUNCE_LAYOUT);
+        String regionsAttr = typedArray.getString(R.styleable.MapSkeleton_map_skeleton_regions);
         typedArray.recycle();
-        getPath(cityResource);
+        updatePaints();
+        List<String> regionList = parseRegions(regionsAttr);
+        if (regionList.isEmpty()) {
+            getPath(cityResource);
+        } else {
+            setRegions(regionList);
+        }
         startAnimation();
     }
 
@@ -110,12 +219,22 @@ public class MapSkeleton extends View {
     public boolean onTouchEvent(MotionEvent event) {
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
+                pressedIndex = currentIndex();
+                pressedRing = findRingAt(event.getX(), event.getY(), pressedIndex);
+                if (pressedRing == -1) {
+                    // 点在图形外，不处理，交给父布局
+                    return false;
+                }
                 clickAnimation();
                 break;
             case MotionEvent.ACTION_UP:
                 if (clickAnimator != null) {
                     clickAnimator.start();
                 }
+                if (onRegionClickListener != null && findRingAt(event.getX(), event.getY(), pressedIndex) == pressedRing) {
+                    int region = regionOf(pressedRing);
+                    onRegionClickListener.onRegionClick(this, region, pressedRing - firstRingOf(region));
+                }
                 break;
         }
         super.onTouchEvent(event);
@@ -124,6 +243,7 @@ public class MapSkeleton extends View {
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        Trace.beginSection("MapSkeleton#onMeasure");
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         int width = MeasureSpec.getSize(widthMeasureSpec);
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
@@ -141,182 +261,742 @@ public class MapSkeleton extends View {
             // 无精确值，用原始大小
             setMeasuredDimension((int) rectF.width(), (int) rectF.height());
         }
+        Trace.endSection();
     }
 
-    @SuppressLint("DrawAllocation")
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        float height = rectF.height();
-        float width = rectF.width();
-        float scaleX = getMeasuredWidth() / width;
-        float scaleY = getMeasuredHeight() / height;
-        // 选择较小的比例，避免超出范围，即scale*width>scaleX*width=getMeasuredWidth
-        float scale = Math.min(scaleX, scaleY);
-        // 保存画布的正常状态
-        canvas.save();
-        // 偏移画布，一般路径可能是经纬度，路径的原点是地图坐标系的原点，
-        // 为了能正常显示，需要移动和缩放画布来使画布原点与坐标系原点重合，大小也能刚好填满画布
-        if (scale == scaleX) {
-            // 高的比例较大，会出现空白，居中需要向下移动
-            canvas.translate(-rectF.left * scale, -rectF.top * scale + (getMeasuredHeight() - (height * scale)) / 2);
-        } else {
-            canvas.translate(-rectF.left * scale + (getMeasuredWidth() - (width * scale)) / 2, -rectF.top * scale);
+        Trace.beginSection("MapSkeleton#onDraw");
+        long start = System.nanoTime();
+        drawContent(canvas);
+        recordDrawTime(System.nanoTime() - start);
+        Trace.endSection();
+    }
+
+    private void drawContent(Canvas canvas) {
+        ensureViewport();
+        drawPath = resolveDrawPath();
+        if (bakeTransform) {
+            drawPath = bakePath(drawPath);
+        }
+        if (outlinePreview) {
+            // 渐进加载中，只画边界
+            drawStroke(canvas);
+            return;
+        }
+        boolean light = animationType == ANIMATION_LINE && animating && !animationSuspended;
+        float contentAlpha = animationType == ANIMATION_PAINT_ALPHA ? pulseAlpha : 1f;
+        if (staticLayerEnabled && getWidth() > 0 && getHeight() > 0) {
+            // 背景、文字、边界在动画过程中不会变化，只绘制一次，之后每帧直接复用，只画亮条
+            drawStaticLayer(canvas, contentAlpha);
+            if (light) {
+                drawLight(canvas);
+            }
+            return;
+        }
+        applyPaintAlpha(contentAlpha);
+        drawBackground(canvas);
+        drawCityName(canvas);
+        // 再画动画亮条
+        if (light) {
+            drawLight(canvas);
+        }
+        drawStroke(canvas);
+    }
+
+    /**
+     * 只记录在主线程提交绘制命令的耗时，不包括RenderThread的光栅化
+     */
+    private void recordDrawTime(long nanos) {
+        drawTimeHistogram[Metrics.bucketOf(nanos)]++;
+        maxDrawTimeNanos = Math.max(maxDrawTimeNanos, nanos);
+    }
+
+    /**
+     * @param alpha 透明度闪烁时整个静态层的透明度，绘制时直接应用，不需要重新绘制静态层
+     */
+    private void drawStaticLayer(Canvas canvas, float alpha) {
+        int width = getWidth();
+        int height = getHeight();
+        if (staticLayerPath != drawPath) {
+            staticLayerPath = drawPath;
+            staticLayerDirty = true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            if (staticLayerNode == null) {
+                createStaticLayerNode();
+            }
+            if (staticLayerDirty || !staticLayerNode.hasDisplayList()
+                    || staticLayerNode.getWidth() != width || staticLayerNode.getHeight() != height) {
+                staticLayerNode.setPosition(0, 0, width, height);
+                Canvas recordingCanvas = staticLayerNode.beginRecording(width, height);
+                drawStaticContent(recordingCanvas);
+                staticLayerNode.endRecording();
+                staticLayerDirty = false;
+            }
+            staticLayerNode.setAlpha(alpha);
+            canvas.drawRenderNode(staticLayerNode);
+            return;
+        }
+        if (staticLayerBitmap == null || staticLayerBitmap.getWidth() != width || staticLayerBitmap.getHeight() != height) {
+            createStaticLayerBitmap(width, height);
         }
-        canvas.scale(scale, scale);
-        //先画背景
-        Paint backgroundPaint = new Paint();
-        backgroundPaint.setAntiAlias(true);
-        backgroundPaint.setStyle(Paint.Style.FILL);
-        backgroundPaint.setColor(mBackground);
-        canvas.drawPath(path, backgroundPaint);
+        if (staticLayerDirty) {
+            staticLayerBitmap.eraseColor(Color.TRANSPARENT);
+            drawStaticContent(staticLayerCanvas);
+            staticLayerDirty = false;
+        }
+        staticLayerPaint.setAlpha(Math.round(alpha * 255));
+        canvas.drawBitmap(staticLayerBitmap, 0, 0, staticLayerPaint);
+    }
+
+    /**
+     * 静态层只在第一次绘制时创建，见MapSkeletonDrawAllocationTest
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void createStaticLayerNode() {
+        staticLayerNode = new RenderNode("MapSkeleton");
+        // 作为独立的合成层，内容不变时不会重新光栅化
+        staticLayerNode.setUseCompositingLayer(true, null);
+        staticLayerDirty = true;
+    }
+
+    /**
+     * 软件绘制时的静态层，只在第一次绘制和大小变化时创建
+     */
+    private void createStaticLayerBitmap(int width, int height) {
+        releaseStaticLayer();
+        staticLayerBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        staticLayerCanvas = new Canvas(staticLayerBitmap);
+        staticLayerDirty = true;
+    }
+
+    private void drawStaticContent(Canvas canvas) {
+        applyPaintAlpha(1f);
+        drawBackground(canvas);
+        drawCityName(canvas);
+        drawStroke(canvas);
+    }
 
-        // 恢复正常画布状态，以绘制文字
+    /**
+     * 见SkeletonPainter.setAlpha，区域背景色也使用同样的透明度
+     */
+    private void applyPaintAlpha(float alpha) {
+        paintAlpha = alpha;
+        painter.setAlpha(alpha);
+    }
+
+    private void drawBackground(Canvas canvas) {
+        if (regionColors != null && regions != null && regions.entry == entry) {
+            drawRegionBackgrounds(canvas);
+            return;
+        }
+        // 先画背景，绘制后恢复正常画布状态，以绘制文字
         // 不恢复状态绘制文字时，需要把字体大小cityNameSize除以scale，因为画布被放大了scale，
         // 但是放大过程并没有如预期那样变为两个正常的字体，反而重叠在了一起
-        canvas.restore();
-        // 文字
-        if (!TextUtils.isEmpty(cityName)) {
-            Paint cityNamePaint = new Paint();
-            cityNamePaint.setTextAlign(Paint.Align.LEFT);
-            cityNamePaint.setTextSize(cityNameSize);
-            cityNamePaint.setColor(cityNameColor);
-            // 大小为int值，此时先计算正常状态下的宽高，然后再进行缩放
-            Rect bounds = new Rect();
-            cityNamePaint.getTextBounds(cityName, 0, cityName.length(), bounds);
-            canvas.drawText(cityName,
-                    getMeasuredWidth() / 2f - (bounds.width() / 2f),
-                    getMeasuredHeight() / 2f + (bounds.height() / 2f),
-                    cityNamePaint);
+        painter.drawBackground(canvas, drawPath, canvasMatrix());
+    }
+
+    /**
+     * 分别设置了背景色时每个区域单独填充，区域路径没有预先变换，总是缩放画布
+     */
+    private void drawRegionBackgrounds(Canvas canvas) {
+        int saveCount = canvas.save();
+        canvas.concat(viewportMatrix);
+        float tolerance = simplifyTolerance > 0 ? simplifyTolerance / viewportScale : 0;
+        for (int i = 0; i < regions.size(); i++) {
+            int color = i < regionColors.length ? regionColors[i] : mBackground;
+            regionPaint.setColor(color);
+            regionPaint.setAlpha(Math.round(Color.alpha(color) * paintAlpha));
+            canvas.save();
+            canvas.translate(0, regions.offsetsY[i]);
+            canvas.drawPath(regions.getPath(i, tolerance), regionPaint);
+            canvas.restore();
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void drawCityName(Canvas canvas) {
+        // 文字，大小在属性变化时已经计算好
+        painter.drawLabel(canvas, getMeasuredWidth() / 2f, getMeasuredHeight() / 2f);
+    }
+
+    private void drawLight(Canvas canvas) {
+        painter.drawLight(canvas, drawPath, canvasMatrix(), rectF, angle, lightColor, process,
+                bakeTransform ? viewportMatrix : null);
+    }
+
+    private void drawStroke(Canvas canvas) {
+        // 再画边界，画布被缩放时线宽需要除以缩放比例
+        painter.drawStroke(canvas, drawPath, canvasMatrix(), bakeTransform ? strokeWidth : strokeWidth / viewportScale);
+    }
+
+    /**
+     * 根据当前缩放比例选择简化后的路径，小于simplifyTolerance像素的细节不绘制。
+     * 简化路径在后台生成（见prepareLod），生成前先绘制完整的路径
+     */
+    private Path resolveDrawPath() {
+        float tolerance = lodToleranceOf(entry);
+        if (!(tolerance > 0)) {
+            return path;
+        }
+        Path lodPath = entry.peekLodPath(tolerance);
+        return lodPath != null ? lodPath : path;
+    }
+
+    /**
+     * @return 当前缩放比例下简化路径的容差（路径坐标系），不需要简化时返回0
+     */
+    private float lodToleranceOf(@Nullable GeometryCache.Entry entry) {
+        if (simplifyTolerance <= 0 || entry == null || entry.path != path) {
+            return 0;
+        }
+        if (!(viewportScale > 0) || Float.isInfinite(viewportScale)) {
+            return 0;
+        }
+        return simplifyTolerance / viewportScale;
+    }
+
+    /**
+     * 在加载线程池中生成当前缩放比例需要的简化路径（多区域模式下包括每个区域的路径），
+     * 简化和创建Path不在onDraw中进行，生成后重绘
+     */
+    private void prepareLod() {
+        GeometryCache.Entry entry = this.entry;
+        float tolerance = lodToleranceOf(entry);
+        if (!(tolerance > 0) || (lodEntry == entry && lodTolerance == tolerance)) {
+            return;
+        }
+        MapRegions regions = this.regions != null && this.regions.entry == entry ? this.regions : null;
+        boolean ready = entry.peekLodPath(tolerance) != null;
+        if (regions != null) {
+            for (GeometryCache.Entry regionEntry : regions.entries) {
+                ready &= regionEntry.peekLodPath(tolerance) != null;
+            }
+        }
+        if (ready) {
+            return;
+        }
+        lodEntry = entry;
+        lodTolerance = tolerance;
+        (loadExecutor != null ? loadExecutor : GeometryLoader.defaultExecutor()).execute(() -> {
+            entry.getLodPath(tolerance);
+            if (regions != null) {
+                for (GeometryCache.Entry regionEntry : regions.entries) {
+                    regionEntry.getLodPath(tolerance);
+                }
+            }
+            MAIN_HANDLER.post(() -> {
+                if (lodEntry == entry && lodTolerance == tolerance) {
+                    lodEntry = null;
+                }
+                invalidateStaticLayer();
+            });
+        });
+    }
+
+    /**
+     * 大小或边界变化后重新计算viewportMatrix，其余时候每帧只做比较
+     */
+    private void ensureViewport() {
+        if (viewportBounds != rectF || viewportWidth != getMeasuredWidth() || viewportHeight != getMeasuredHeight()) {
+            updateViewport();
         }
+    }
+
+    /**
+     * 一般路径可能是经纬度，路径的原点是地图坐标系的原点，
+     * 为了能正常显示，需要移动和缩放来使画布原点与坐标系原点重合，大小也能刚好填满画布
+     */
+    private void updateViewport() {
+        viewportBounds = rectF;
+        viewportWidth = getMeasuredWidth();
+        viewportHeight = getMeasuredHeight();
+        viewportVersion++;
+        viewportScale = fitViewport(viewportMatrix, rectF, viewportWidth, viewportHeight);
+        prepareLod();
+    }
 
+    /**
+     * 计算把bounds等比缩放后居中放入width*height的矩阵
+     *
+     * @return 缩放比例
+     */
+    static float fitViewport(Matrix matrix, RectF bounds, float viewWidth, float viewHeight) {
+        float height = bounds.height();
+        float width = bounds.width();
+        float scaleX = viewWidth / width;
+        float scaleY = viewHeight / height;
+        // 选择较小的比例，避免超出范围，即scale*width>scaleX*width=getMeasuredWidth
+        float scale = Math.min(scaleX, scaleY);
+        matrix.setScale(scale, scale);
         if (scale == scaleX) {
             // 高的比例较大，会出现空白，居中需要向下移动
-            canvas.translate(-rectF.left * scale, -rectF.top * scale + (getMeasuredHeight() - (height * scale)) / 2);
+            matrix.postTranslate(-bounds.left * scale, -bounds.top * scale + (viewHeight - (height * scale)) / 2);
         } else {
-            canvas.translate(-rectF.left * scale + (getMeasuredWidth() - (width * scale)) / 2, -rectF.top * scale);
+            matrix.postTranslate(-bounds.left * scale + (viewWidth - (width * scale)) / 2, -bounds.top * scale);
         }
-        canvas.scale(scale, scale);
+        return scale;
+    }
 
-        // 再画动画亮条
-        if (animationType == ANIMATION_LINE && objectAnimatorLine != null && objectAnimatorLine.isRunning()) {
-            Paint loadPaint = new Paint();
-            loadPaint.setAntiAlias(true);
-            loadPaint.setStyle(Paint.Style.FILL);
-            float angleLength = (float) (rectF.width() * Math.tan(Math.toRadians(angle)));
-            float start = -rectF.width() / 2 // 亮条渐变在0.5处，所以需要偏移
-                    - angleLength // 没有角度时，亮条是垂直的，有角度后需要添加偏移
-                    + (rectF.width() + 2 * angleLength) * process;
-            loadPaint.setShader(new LinearGradient(rectF.left + start, rectF.top, rectF.right + start, rectF.top + angleLength,
-                    new int[]{0x00ffffff, lightColor, lightColor, 0x00ffffff},
-                    new float[]{0.45f, 0.499f, 0.501f, 0.55f},
-                    Shader.TileMode.CLAMP));
-            canvas.drawPath(path, loadPaint);
-        }
-
-        // 再画边界
-        Paint pathPaint = new Paint();
-        pathPaint.setColor(strokeColor);
-        pathPaint.setStrokeWidth(strokeWidth / scale);
-        pathPaint.setStyle(Paint.Style.STROKE);
-        canvas.drawPath(path, pathPaint);
+    /**
+     * @param x     view中的坐标
+     * @param index 为null时按边界矩形判断
+     * @return 该点所在的区块在当前geometry中的序号，不在图形内时返回-1
+     */
+    private int findRingAt(float x, float y, @Nullable GeometryIndex index) {
+        if (rectF == null) {
+            return -1;
+        }
+        ensureViewport();
+        if (!viewportMatrix.invert(viewportInverse)) {
+            return -1;
+        }
+        touchPoint[0] = x;
+        touchPoint[1] = y;
+        viewportInverse.mapPoints(touchPoint);
+        if (index == null) {
+            return rectF.contains(touchPoint[0], touchPoint[1]) ? 0 : -1;
+        }
+        return index.findRing(touchPoint[0], touchPoint[1]);
     }
 
-    private void getPath(String cityResource) {
-        if (!TextUtils.isEmpty(cityResource) && cityResource.indexOf('.') == -1) {
-            getPathForProvince(cityResource);
+    /**
+     * 索引还没有生成时在后台生成，不在主线程生成，大的边界需要较长时间
+     *
+     * @return 没有geometry或还没有生成时返回null
+     */
+    @Nullable
+    private GeometryIndex currentIndex() {
+        if (entry == null) {
+            return null;
+        }
+        GeometryIndex index = entry.peekIndex();
+        if (index == null) {
+            prepareIndex();
+        }
+        return index;
+    }
+
+    /**
+     * 在加载线程池中生成当前entry的点击索引，生成后保存在entry中，共享同一区域的实例都可以使用
+     */
+    private void prepareIndex() {
+        GeometryCache.Entry entry = this.entry;
+        if (entry == null || entry.geometry == null || entry.peekIndex() != null || indexingEntry == entry) {
+            return;
+        }
+        indexingEntry = entry;
+        (loadExecutor != null ? loadExecutor : GeometryLoader.defaultExecutor()).execute(() -> {
+            entry.getIndex();
+            MAIN_HANDLER.post(() -> {
+                if (indexingEntry == entry) {
+                    indexingEntry = null;
+                }
+            });
+        });
+    }
+
+    /**
+     * 设置了点击回调时需要按实际边界判断点击
+     */
+    private boolean needsIndex() {
+        return onRegionClickListener != null || hasOnClickListeners();
+    }
+
+    /**
+     * 异步加载时在同一个后台任务中生成点击索引
+     */
+    private static GeometryCache.Entry withIndex(GeometryCache.Entry entry, boolean index) {
+        if (index) {
+            entry.getIndex();
+        }
+        return entry;
+    }
+
+    /**
+     * @return 区块所属的区域，不是多区域模式时为0
+     */
+    private int regionOf(int ring) {
+        if (regions == null || regions.entry != entry || entry.geometry == null) {
+            return 0;
+        }
+        int region = 0;
+        while (region < regions.size() - 1 && regions.ringOffsets[region + 1] <= ring) {
+            region++;
+        }
+        return region;
+    }
+
+    private int firstRingOf(int region) {
+        if (regions == null || regions.entry != entry || entry.geometry == null) {
+            return 0;
+        }
+        return regions.ringOffsets[region];
+    }
+
+    /**
+     * 画布缩放时应用viewportMatrix，预先变换路径时不需要
+     */
+    @Nullable
+    private Matrix canvasMatrix() {
+        return bakeTransform ? null : viewportMatrix;
+    }
+
+    /**
+     * 路径或viewportMatrix变化时才重新变换，结果写入复用的bakedPath
+     */
+    private Path bakePath(Path source) {
+        if (bakedSource != source || bakedVersion != viewportVersion) {
+            source.transform(viewportMatrix, bakedPath);
+            bakedSource = source;
+            bakedVersion = viewportVersion;
+            // bakedPath对象不变，静态层无法通过路径判断是否需要重绘
+            staticLayerDirty = true;
+        }
+        return bakedPath;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        staticLayerDirty = true;
+        if (rectF != null) {
+            updateViewport();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        unregisterClock();
+        releaseStaticLayer();
+    }
+
+    private void releaseStaticLayer() {
+        if (staticLayerBitmap != null) {
+            staticLayerBitmap.recycle();
+            staticLayerBitmap = null;
+            staticLayerCanvas = null;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && staticLayerNode != null) {
+            staticLayerNode.discardDisplayList();
+        }
+        staticLayerDirty = true;
+    }
+
+    /**
+     * 背景、文字、边界的属性变化后需要重新绘制静态层
+     */
+    private void invalidateStaticLayer() {
+        staticLayerDirty = true;
+        invalidate();
+    }
+
+    private void updatePaints() {
+        regionPaint.setStyle(Paint.Style.FILL);
+        painter.setBackgroundColor(mBackground);
+        painter.setStrokeColor(strokeColor);
+        updateCityNamePaint();
+    }
+
+    private void updateCityNamePaint() {
+        painter.setLabel(cityName, cityNameSize, cityNameColor);
+    }
+
+    /**
+     * 硬件加速时invalidate(Rect)会被忽略，只在软件绘制时重绘上一帧和这一帧亮条所在的区域
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateLight() {
+        if (isHardwareAccelerated() || animationType != ANIMATION_LINE || rectF == null || viewportBounds != rectF) {
+            invalidate();
+            return;
+        }
+        if (painter.lightBand.computeQuad(rectF, angle, process)) {
+            float[] lightQuad = painter.lightBand.quad;
+            viewportMatrix.mapPoints(lightQuad);
+            float left = Float.MAX_VALUE;
+            float top = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            float bottom = -Float.MAX_VALUE;
+            for (int i = 0; i < 8; i += 2) {
+                left = Math.min(left, lightQuad[i]);
+                top = Math.min(top, lightQuad[i + 1]);
+                right = Math.max(right, lightQuad[i]);
+                bottom = Math.max(bottom, lightQuad[i + 1]);
+            }
+            // 多留1像素给抗锯齿
+            lightDirty.set((int) Math.floor(left) - 1, (int) Math.floor(top) - 1,
+                    (int) Math.ceil(right) + 1, (int) Math.ceil(bottom) + 1);
         } else {
-            getPathFromAssets(cityResource);
+            lightDirty.setEmpty();
+        }
+        Rect dirty = lastLightDirty;
+        dirty.union(lightDirty);
+        if (!dirty.isEmpty()) {
+            invalidate(dirty);
         }
+        lastLightDirty.set(lightDirty);
     }
 
-    private void getPathForProvince(String city) {
-        try {
-            if (isInEditMode()) {
-                defaultPath();
-                return;
+    private void getPath(String cityResource) {
+        getPath(cityResource, !TextUtils.isEmpty(cityResource) && cityResource.indexOf('.') == -1);
+    }
+
+    /**
+     * 相同的cityResource在所有实例间共享一份解析结果，见GeometryCache
+     *
+     * @param province true：chinahigh.xml中的省份，false：assets中的文件
+     */
+    private void getPath(String cityResource, boolean province) {
+        cancelPendingLoad();
+        clearRegions();
+        geometryProvider = null;
+        loadStartNanos = System.nanoTime();
+        if (isInEditMode() || TextUtils.isEmpty(cityResource)) {
+            defaultPath();
+            return;
+        }
+        Context context = getContext().getApplicationContext();
+        if (asyncLoad) {
+            GeometryCache.Entry cached = GeometryCache.peek(cityResource);
+            if (cached != null) {
+                applyEntry(cached, true);
+            } else {
+                ProgressiveOutline.Listener outline = outlineListener();
+                boolean index = needsIndex();
+                loadAsync(() -> withIndex(GeometryCache.obtain(context, cityResource, province, outline), index),
+                        entry -> applyEntry(entry, true));
             }
-            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(getResources().openRawResource(R.raw.chinahigh));
-            Element node = document.getElementById(city);
-            path = PathParser.createPathFromPathData(node.getAttribute("android:pathData"));
-            rectF = new RectF();
-            path.computeBounds(rectF, true);
-        } catch (IOException | ParserConfigurationException | SAXException e) {
+            return;
+        }
+        try {
+            applyEntry(GeometryCache.obtain(context, cityResource, province), true);
+        } catch (IOException | IllegalArgumentException e) {
             e.printStackTrace();
             defaultPath();
         }
     }
 
     public void getPathFromAssets(String resource) {
-        if (isInEditMode()) {
-            defaultPath();
+        getPath(resource, false);
+    }
+
+    public void getPathFromData() {
+        cancelPendingLoad();
+        clearRegions();
+        loadStartNanos = System.nanoTime();
+        // 使用GeometryProvider时，createPath更新为解析结果的旧格式
+        boolean fromProvider = geometryProvider != null;
+        GeometryProvider provider = fromProvider ? geometryProvider : GeometryProvider.from(createPath);
+        if (asyncLoad) {
+            ProgressiveOutline.Listener outline = outlineListener();
+            boolean index = needsIndex();
+            loadAsync(() -> withIndex(buildEntry(provider, outline), index), entry -> applyEntry(entry, fromProvider));
             return;
         }
-        createPath = () -> {
-            try {
-                InputStream inputStream = getResources().getAssets().open(resource);
-                byte[] bytes = new byte[inputStream.available()];
-                inputStream.read(bytes);
-                inputStream.close();
-                String pathStr = new String(bytes, StandardCharsets.UTF_8);
-                // 区域块String
-                String[] pathArrayStr = pathStr.split("\\|");
-                List<float[][]> pathData = new ArrayList<>();
-                // 经度上面大，小面小，与view的Y轴方向是相反的
-                float max = 0;
-                float min = Float.MAX_VALUE;
-                for (int i = 0; i < pathArrayStr.length; i++) {
-                    String[] pathStrArray = pathArrayStr[i].split(";");
-                    float[][] pathDataOne = new float[pathStrArray.length][2];
-                    for (int j = 0; j < pathStrArray.length; j++) {
-                        String[] positions = pathStrArray[j].split(",");
-                        pathDataOne[j][0] = Float.parseFloat(positions[0].trim());
-                        pathDataOne[j][1] = Float.parseFloat(positions[1].trim());
-                        max = Math.max(max, pathDataOne[j][1]);
-                        min = Math.min(min, pathDataOne[j][1]);
+        try {
+            applyEntry(buildEntry(provider, null), fromProvider);
+        } catch (Exception e) {
+            e.printStackTrace();
+            defaultPath();
+        }
+    }
+
+    private static GeometryCache.Entry buildEntry(GeometryProvider provider,
+                                                  @Nullable ProgressiveOutline.Listener outline) throws IOException {
+        GeometryBuilder builder = new GeometryBuilder();
+        Trace.beginSection("MapSkeleton#getPathFromData");
+        try {
+            provider.writeGeometry(outline != null ? new ProgressiveOutline(builder, false, outline) : builder);
+        } finally {
+            Trace.endSection();
+        }
+        return GeometryLoader.newEntry(builder.build(0), 0);
+    }
+
+    /**
+     * @return 没有开启渐进加载时返回null
+     */
+    @Nullable
+    private ProgressiveOutline.Listener outlineListener() {
+        if (!progressiveLoad) {
+            return null;
+        }
+        final int generation = loadGeneration;
+        return new ProgressiveOutline.Listener() {
+            @Override
+            public void onOutline(Path outline, RectF bounds) {
+                MAIN_HANDLER.post(() -> {
+                    if (generation == loadGeneration && pendingLoad != null) {
+                        showOutline(outline, bounds);
                     }
-                    pathData.add(pathDataOne);
+                });
+            }
+
+            @Override
+            public boolean isCancelled() {
+                // cancelPendingLoad不中断线程，只增加loadGeneration
+                return generation != loadGeneration;
+            }
+        };
+    }
+
+    /**
+     * 在后台线程加载，加载完成前显示占位路径，新的加载会取消还没完成的旧加载
+     */
+    private <T> void loadAsync(Callable<T> loader, Consumer<T> onLoaded) {
+        showPlaceholder();
+        final int generation = loadGeneration;
+        FutureTask<T> task = new FutureTask<T>(loader) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
                 }
-                // 画板与纬度的方向是相反的，需要反转下
-                for (int i = 0; i < pathData.size(); i++) {
-                    for (int j = 0; j < pathData.get(i).length; j++) {
-                        pathData.get(i)[j][1] = max - (pathData.get(i)[j][1] - min);
+                MAIN_HANDLER.post(() -> {
+                    if (generation != loadGeneration) {
+                        // 已经被新的加载替代
+                        return;
                     }
-                }
-                return pathData;
-            } catch (IOException e) {
-                e.printStackTrace();
+                    pendingLoad = null;
+                    try {
+                        onLoaded.accept(get());
+                    } catch (ExecutionException | InterruptedException e) {
+                        e.printStackTrace();
+                        defaultPath();
+                        onGeometryChanged();
+                    }
+                });
             }
-            return new ArrayList<>();
         };
-        getPathFromData();
+        pendingLoad = task;
+        (loadExecutor != null ? loadExecutor : GeometryLoader.defaultExecutor()).execute(task);
     }
 
-    public void getPathFromData() {
+    /**
+     * 多区域模式，所有区域合并到同一个坐标系中，共用一次亮条和边界的绘制，大小按合并后的边界计算
+     */
+    private void loadRegions() {
+        cancelPendingLoad();
+        loadStartNanos = System.nanoTime();
+        if (isInEditMode()) {
+            defaultPath();
+            return;
+        }
+        Context context = getContext().getApplicationContext();
+        List<String> resources = regionResources;
+        if (asyncLoad) {
+            boolean index = needsIndex();
+            loadAsync(() -> {
+                MapRegions regions = MapRegions.load(context, resources);
+                withIndex(regions.entry, index);
+                return regions;
+            }, this::applyRegions);
+            return;
+        }
         try {
-            List<float[][]> pathData = createPath.getPath();
-            path = new Path();
-            for (int i = 0; i < pathData.size(); i++) {
-                float[][] onePath = pathData.get(i);
-                for (int j = 0; j < onePath.length; j++) {
-                    if (j == 0) {
-                        path.moveTo(onePath[j][0], onePath[j][1]);
-                    } else {
-                        path.lineTo(onePath[j][0], onePath[j][1]);
-                    }
+            applyRegions(MapRegions.load(context, resources));
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            defaultPath();
+        }
+    }
+
+    private void applyRegions(MapRegions regions) {
+        this.regions = regions;
+        applyEntry(regions.entry, false);
+    }
+
+    private void clearRegions() {
+        regionResources = null;
+        regions = null;
+    }
+
+    private static List<String> parseRegions(@Nullable String value) {
+        List<String> resources = new ArrayList<>();
+        if (value != null) {
+            for (String resource : value.split(",")) {
+                if (!resource.trim().isEmpty()) {
+                    resources.add(resource.trim());
                 }
-                path.lineTo(onePath[onePath.length - 1][0], onePath[onePath.length - 1][1]);
             }
+        }
+        return resources;
+    }
+
+    /**
+     * 不中断加载线程：它可能正在执行其他实例和预加载也在等待的同一次加载，
+     * 中断会使内存映射等IO失败，所有等待者都拿到错误。旧的结果由loadGeneration丢弃
+     */
+    private void cancelPendingLoad() {
+        loadGeneration++;
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+            pendingLoad = null;
+        }
+    }
+
+    /**
+     * @param resource true：来自cityResource或GeometryProvider，false：来自自定义的CreatePath
+     */
+    private void applyEntry(GeometryCache.Entry entry, boolean resource) {
+        if (resource && entry.geometry != null) {
+            // 保留CreatePath，getCreatePath()仍可以拿到旧格式的数据
+            createPath = entry.geometry::toList;
+        }
+        this.entry = entry;
+        path = entry.path;
+        rectF = entry.bounds;
+        outlinePreview = false;
+        // 命中缓存时路径不是这次生成的，仍记录生成时的耗时，便于找出过重的区域
+        loadTimeNanos = System.nanoTime() - loadStartNanos;
+        pathBuildTimeNanos = entry.pathBuildNanos;
+        if (needsIndex()) {
+            prepareIndex();
+        }
+        onGeometryChanged();
+    }
 
+    private void onGeometryChanged() {
+        requestLayout();
+        invalidate();
+        if (onGeometryReadyListener != null) {
+            onGeometryReadyListener.onGeometryReady(this);
+        }
+    }
+
+    private void showPlaceholder() {
+        entry = null;
+        outlinePreview = false;
+        if (placeholderPath != null) {
+            path = placeholderPath;
             rectF = new RectF();
             path.computeBounds(rectF, true);
-        } catch (Exception e) {
-            e.printStackTrace();
+        } else {
             defaultPath();
         }
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 显示渐进加载中已经解析出的轮廓，边界随之更新
+     */
+    private void showOutline(Path outline, RectF bounds) {
+        entry = null;
+        outlinePreview = true;
+        path = outline;
+        rectF = bounds;
+        requestLayout();
+        invalidate();
     }
 
     private void defaultPath() {
+        entry = null;
+        outlinePreview = false;
         path = new Path();
         path.addCircle(50, 50, 50, Path.Direction.CW);
         rectF = new RectF();
@@ -324,62 +1004,228 @@ public class MapSkeleton extends View {
     }
 
 
-    ObjectAnimator objectAnimatorLine;
+    // 动画由所有实例共享的MapSkeletonClock驱动，不再每个实例一个无限循环的Animator
+    private boolean animating;
+    // 系统关闭了动画或处于省电模式，只显示静态的骨架
+    private boolean animationSuspended;
+    private int maxFrameRate;
+    private long lastFrameTimeNanos;
+    // 滚动到屏幕外（如列表或ScrollView中）时暂停，滚动或布局后重新检查
+    private boolean offscreen;
+    private final Rect visibleRect = new Rect();
+    private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener = this::onViewportChanged;
+    private final ViewTreeObserver.OnGlobalLayoutListener globalLayoutListener = this::onViewportChanged;
+    private final MapSkeletonClock.Client clockClient = new MapSkeletonClock.Client() {
+        @Override
+        public long onFrame(long frameTimeNanos) {
+            return onClockFrame(frameTimeNanos);
+        }
+
+        @Override
+        public void onSuspendChanged(boolean suspended) {
+            setAnimationSuspended(suspended);
+        }
+    };
+    // setDuration、setAnimationType等setter会再次调用startAnimation，已经注册时只请求下一帧，
+    // 不重复添加ViewTreeObserver监听，也不重置动画的进度
+    private final ClockRegistration clockRegistration = new ClockRegistration(new ClockRegistration.Target() {
+        @Override
+        public void onRegister() {
+            MapSkeletonClock clock = MapSkeletonClock.get(getContext());
+            lastFrameTimeNanos = 0;
+            offscreen = false;
+            setAnimationSuspended(clock.isSuspended());
+            ViewTreeObserver observer = getViewTreeObserver();
+            observer.addOnScrollChangedListener(scrollChangedListener);
+            observer.addOnGlobalLayoutListener(globalLayoutListener);
+            clock.register(clockClient);
+        }
+
+        @Override
+        public void onRegisterAgain() {
+            MapSkeletonClock.get(getContext()).requestFrame();
+        }
+
+        @Override
+        public void onUnregister() {
+            ViewTreeObserver observer = getViewTreeObserver();
+            observer.removeOnScrollChangedListener(scrollChangedListener);
+            observer.removeOnGlobalLayoutListener(globalLayoutListener);
+            MapSkeletonClock.get(getContext()).unregister(clockClient);
+        }
+    });
 
+    /**
+     * 启动动画，不修改animationType，只有ANIMATION_LINE时才绘制亮条。需要切换为线条动画时调用setAnimationType
+     */
     public void loadAnimationLine() {
-        if (objectAnimatorLine != null && objectAnimatorLine.isRunning()) {
-            objectAnimatorLine.end();
+        startClock();
+    }
+
+    private void loadAnimationAlpha() {
+        startClock();
+    }
+
+    private void startClock() {
+        animating = true;
+        if (isAttachedToWindow()) {
+            registerClock();
+        }
+    }
+
+    private void registerClock() {
+        if (!isInEditMode()) {
+            clockRegistration.register();
         }
-        objectAnimatorLine = ObjectAnimator.ofFloat(this, "process", 1f)
-                .setDuration(duration);
-        objectAnimatorLine.setRepeatMode(ObjectAnimator.RESTART);
-        objectAnimatorLine.setRepeatCount(ValueAnimator.INFINITE);
-        objectAnimatorLine.start();
     }
 
-    ValueAnimator valueAnimatorAlpha;
+    private void unregisterClock() {
+        clockRegistration.unregister();
+    }
 
-    private void loadAnimationAlpha() {
-        if (valueAnimatorAlpha != null && valueAnimatorAlpha.isRunning()) {
-            valueAnimatorAlpha.end();
-        }
-        valueAnimatorAlpha = ValueAnimator.ofFloat(0, 1).setDuration(duration);
-        valueAnimatorAlpha.addUpdateListener(animation -> {
-            float currentAlpha = (animationMaxAlpha+animationMinAlpha)/2f
-                    + (float) Math.cos(Math.PI*2*(float)animation.getAnimatedValue())*(animationMaxAlpha-animationMinAlpha)/2f;
-            MapSkeleton.this.setAlpha(currentAlpha);
-        });
-        valueAnimatorAlpha.setRepeatMode(ObjectAnimator.RESTART);
-        valueAnimatorAlpha.setRepeatCount(ValueAnimator.INFINITE);
-        valueAnimatorAlpha.start();
+    /**
+     * 因为在屏幕外暂停后，滚动或布局使view重新进入屏幕时恢复
+     */
+    private void onViewportChanged() {
+        if (offscreen && clockRegistration.isRegistered() && getLocalVisibleRect(visibleRect)) {
+            offscreen = false;
+            MapSkeletonClock.get(getContext()).requestFrame();
+        }
+    }
+
+    private void setAnimationSuspended(boolean suspended) {
+        if (animationSuspended == suspended) {
+            return;
+        }
+        animationSuspended = suspended;
+        if (suspended && animationType != ANIMATION_LINE) {
+            setPulseAlpha(alphaAt(1f));
+        }
+        invalidate();
+    }
+
+    /**
+     * 由帧时间计算动画进度
+     *
+     * @return 需要下一帧的时间，不可见或完全在屏幕外时返回NO_FRAME
+     */
+    private long onClockFrame(long frameTimeNanos) {
+        if (getWindowVisibility() != VISIBLE || !isShown()) {
+            return MapSkeletonClock.NO_FRAME;
+        }
+        // isShown只检查visibility，被滚动到父布局或窗口之外时也不再绘制
+        if (!getLocalVisibleRect(visibleRect)) {
+            offscreen = true;
+            return MapSkeletonClock.NO_FRAME;
+        }
+        if (maxFrameRate > 0) {
+            long interval = 1_000_000_000L / maxFrameRate;
+            if (frameTimeNanos - lastFrameTimeNanos < interval - MapSkeletonClock.FRAME_SLOP_NANOS) {
+                // 还没到下一帧的时间，跳过这个vsync
+                return lastFrameTimeNanos + interval;
+            }
+            lastFrameTimeNanos = frameTimeNanos;
+        }
+        animationFrameCount++;
+        MapSkeletonClock clock = MapSkeletonClock.get(getContext());
+        float fraction = MapSkeletonClock.interpolate(clock.fraction(frameTimeNanos, duration));
+        if (animationType == ANIMATION_LINE) {
+            setProcess(fraction);
+        } else {
+            setPulseAlpha(alphaAt(fraction));
+        }
+        return maxFrameRate > 0 ? frameTimeNanos + 1_000_000_000L / maxFrameRate : frameTimeNanos;
+    }
+
+    private void setPulseAlpha(float alpha) {
+        if (animationType == ANIMATION_ALPHA) {
+            setAlpha(alpha);
+        } else {
+            pulseAlpha = alpha;
+            invalidate();
+        }
+    }
+
+    /**
+     * 使用静态层且不画亮条时每帧只有一次绘制，View.setAlpha不需要离屏缓冲
+     */
+    @Override
+    public boolean hasOverlappingRendering() {
+        return !(staticLayerEnabled && animationType != ANIMATION_LINE);
+    }
+
+    private float alphaAt(float fraction) {
+        return MapSkeletonClock.pulse(fraction, animationMinAlpha, animationMaxAlpha);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (animating) {
+            registerClock();
+        }
+    }
+
+    /**
+     * 自身或父布局不可见、窗口不可见时暂停，重新可见时恢复
+     */
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        if (isVisible && clockRegistration.isRegistered()) {
+            // 不可见时时钟可能已经停止请求新的帧
+            MapSkeletonClock.get(getContext()).requestFrame();
+        }
     }
 
+    private static final float BOUNCE_MAX_SCALE = 0.03f;
+    private static final float BOUNCE_ROUND = 5f;
+    // 复用的点击回弹动画，按下时不再创建新的ValueAnimator
     private ValueAnimator clickAnimator;
+    private int bounceMode = BOUNCE_LAYOUT;
+    // 按下时的布局参数和大小，BOUNCE_LAYOUT使用
+    private ViewGroup.LayoutParams bounceLayoutParams;
+    private int bounceWidth;
+    private int bounceHeight;
 
     private void clickAnimation() {
-        ViewGroup.LayoutParams layoutParams = this.getLayoutParams();
-        int width = getMeasuredWidth();
-        int height = getMeasuredHeight();
-        float maxScale = 0.03f;
-        float round = 5f;
-        layoutParams.width = (int) (width + width * maxScale);
-        layoutParams.height = (int) (height + height * maxScale);
-        setLayoutParams(layoutParams);
-        requestLayout();
-
-        if (clickAnimator != null && clickAnimator.isRunning()) {
+        if (clickAnimator == null) {
+            clickAnimator = ValueAnimator.ofFloat(0f, 1f);
+            clickAnimator.addUpdateListener(animation -> {
+                float fraction = animation.getAnimatedFraction();
+                float cosTop = BOUNCE_MAX_SCALE * (1f - fraction);
+                applyBounce((float) (cosTop * Math.cos(BOUNCE_ROUND * Math.PI * fraction)));
+            });
+            clickAnimator.setDuration(500);
+        }
+        if (clickAnimator.isRunning()) {
             clickAnimator.end();
         }
-        clickAnimator = ValueAnimator.ofFloat(0f, 1f);
-        clickAnimator.addUpdateListener(animation -> {
-            float cosTop = maxScale * (1f - (float) animation.getAnimatedValue());
-            float changeScale = (float) (cosTop * Math.cos(round * Math.PI * (float) animation.getAnimatedValue()));
-            layoutParams.width = (int) (changeScale * width + width);
-            layoutParams.height = (int) (changeScale * height + height);
-            MapSkeleton.this.setLayoutParams(layoutParams);
-            MapSkeleton.this.requestLayout();
-        });
-        clickAnimator.setDuration(500);
+        if (bounceMode == BOUNCE_LAYOUT) {
+            bounceLayoutParams = this.getLayoutParams();
+            bounceWidth = getMeasuredWidth();
+            bounceHeight = getMeasuredHeight();
+        }
+        applyBounce(BOUNCE_MAX_SCALE);
+    }
+
+    /**
+     * @param changeScale 相对原大小的变化比例
+     */
+    private void applyBounce(float changeScale) {
+        if (bounceMode == BOUNCE_SCALE) {
+            // 只修改绘制属性，不触发measure和layout
+            setScaleX(1f + changeScale);
+            setScaleY(1f + changeScale);
+            return;
+        }
+        if (bounceLayoutParams == null) {
+            return;
+        }
+        bounceLayoutParams.width = (int) (changeScale * bounceWidth + bounceWidth);
+        bounceLayoutParams.height = (int) (changeScale * bounceHeight + bounceHeight);
+        setLayoutParams(bounceLayoutParams);
+        requestLayout();
     }
 
     public void startAnimation(){
@@ -391,18 +1237,23 @@ public class MapSkeleton extends View {
     }
 
     public void stopAnimation(){
-        if (objectAnimatorLine != null && objectAnimatorLine.isRunning()) {
-            objectAnimatorLine.end();
+        if (!animating) {
+            return;
         }
-        if (valueAnimatorAlpha != null && valueAnimatorAlpha.isRunning()) {
-            valueAnimatorAlpha.end();
+        animating = false;
+        unregisterClock();
+        // 与Animator.end()一样停在一个周期的终点
+        if (animationType == ANIMATION_LINE) {
+            setProcess(1f);
+        } else {
+            setPulseAlpha(alphaAt(1f));
         }
     }
 
 
     public void setProcess(float process) {
         this.process = process;
-        invalidate();
+        invalidateLight();
     }
 
     public float getProcess() {
@@ -415,7 +1266,8 @@ public class MapSkeleton extends View {
 
     public void setmBackground(int mBackground) {
         this.mBackground = mBackground;
-        invalidate();
+        painter.setBackgroundColor(mBackground);
+        invalidateStaticLayer();
     }
 
     public int getStrokeColor() {
@@ -424,7 +1276,8 @@ public class MapSkeleton extends View {
 
     public void setStrokeColor(int strokeColor) {
         this.strokeColor = strokeColor;
-        invalidate();
+        painter.setStrokeColor(strokeColor);
+        invalidateStaticLayer();
     }
 
     public float getStrokeWidth() {
@@ -433,7 +1286,7 @@ public class MapSkeleton extends View {
 
     public void setStrokeWidth(float strokeWidth) {
         this.strokeWidth = strokeWidth;
-        invalidate();
+        invalidateStaticLayer();
     }
 
     public int getDuration() {
@@ -462,7 +1315,8 @@ public class MapSkeleton extends View {
 
     public void setCityName(String cityName) {
         this.cityName = cityName;
-        invalidate();
+        updateCityNamePaint();
+        invalidateStaticLayer();
     }
 
     public int getCityNameColor() {
@@ -471,7 +1325,8 @@ public class MapSkeleton extends View {
 
     public void setCityNameColor(int cityNameColor) {
         this.cityNameColor = cityNameColor;
-        invalidate();
+        updateCityNamePaint();
+        invalidateStaticLayer();
     }
 
     public float getCityNameSize() {
@@ -480,7 +1335,8 @@ public class MapSkeleton extends View {
 
     public void setCityNameSize(float cityNameSize) {
         this.cityNameSize = cityNameSize;
-        invalidate();
+        updateCityNamePaint();
+        invalidateStaticLayer();
     }
 
     public int getAnimationType() {
@@ -489,9 +1345,13 @@ public class MapSkeleton extends View {
 
     /**
      * 修改动画类型：
-     * @param animationType ANIMATION_LINE|ANIMATION_ALPHA
+     * @param animationType ANIMATION_LINE|ANIMATION_ALPHA|ANIMATION_PAINT_ALPHA
      */
     public void setAnimationType(int animationType) {
+        if (animating && this.animationType == ANIMATION_ALPHA && animationType != ANIMATION_ALPHA) {
+            // 不再修改View的透明度，恢复为最大透明度
+            setAlpha(alphaAt(1f));
+        }
         this.animationType = animationType;
         startAnimation();
     }
@@ -550,15 +1410,385 @@ public class MapSkeleton extends View {
      */
     public void setCreatePath(CreatePath createPath) {
         this.createPath = createPath;
+        geometryProvider = null;
+        getPathFromData();
+        requestLayout();
+        invalidate();
+    }
+
+    public GeometryProvider getGeometryProvider() {
+        return geometryProvider;
+    }
+
+    /**
+     * 自定义路径，直接写入坐标，不需要为每个点创建float[]，适合点数很多的边界
+     * @param geometryProvider 生成路径的接口，异步加载时在后台线程调用
+     */
+    public void setGeometryProvider(GeometryProvider geometryProvider) {
+        this.geometryProvider = geometryProvider;
         getPathFromData();
         requestLayout();
         invalidate();
     }
 
+    public List<String> getRegions() {
+        return regionResources;
+    }
+
+    /**
+     * 在一个view中绘制多个区域
+     * @param regions 省份id或assets中的文件名，与cityResource相同，不要混用两种，二者的坐标系不同；为空时恢复显示cityResource
+     */
+    public void setRegions(@Nullable List<String> regions) {
+        if (regions == null || regions.isEmpty()) {
+            getPath(cityResource);
+            return;
+        }
+        regionResources = Collections.unmodifiableList(new ArrayList<>(regions));
+        loadRegions();
+    }
+
+    public int[] getRegionColors() {
+        return regionColors;
+    }
+
+    /**
+     * 设置多区域模式下每个区域的背景色，没有设置的区域使用map_skeleton_background
+     * @param regionColors 与setRegions的顺序相同，为null时所有区域使用同一个背景色
+     */
+    public void setRegionColors(@Nullable int[] regionColors) {
+        this.regionColors = regionColors == null ? null : regionColors.clone();
+        invalidateStaticLayer();
+    }
+
+    /**
+     * chinahigh.xml中所有省份的id，按文件中的顺序，可以直接用于setRegions绘制全国地图
+     */
+    public static List<String> getProvinceIds(Context context) throws IOException {
+        return new ArrayList<>(ProvinceIndex.get(context.getResources()).getIds());
+    }
+
+    public boolean isStaticLayerEnabled() {
+        return staticLayerEnabled;
+    }
+
+    /**
+     * 设置是否缓存背景、文字、边界，缓存后动画时每帧只绘制亮条，默认关闭。
+     * 每个实例会额外占用一块view大小的图层（API 29以上为独立的合成层，否则为ARGB_8888的Bitmap），
+     * 列表中的大量骨架屏不要开启，只建议用于边界复杂、绘制较慢的大尺寸静态地图
+     */
+    public void setStaticLayerEnabled(boolean staticLayerEnabled) {
+        this.staticLayerEnabled = staticLayerEnabled;
+        if (!staticLayerEnabled) {
+            releaseStaticLayer();
+        }
+        invalidate();
+    }
+
+    public float getSimplifyTolerance() {
+        return simplifyTolerance;
+    }
+
+    /**
+     * 设置路径简化的容差，偏差小于该值的点不绘制，可以大幅减少复杂边界的绘制开销
+     * @param simplifyTolerance 单位为像素，0表示不简化
+     */
+    public void setSimplifyTolerance(float simplifyTolerance) {
+        this.simplifyTolerance = simplifyTolerance;
+        prepareLod();
+        invalidateStaticLayer();
+    }
+
+    public boolean isBakeTransform() {
+        return bakeTransform;
+    }
+
+    /**
+     * 设置是否预先把路径变换到屏幕坐标系，大小或路径变化时变换一次，绘制时画布不再缩放，
+     * 极端缩放下细线的精度也更好，但每个实例会额外占用一份路径的内存
+     */
+    public void setBakeTransform(boolean bakeTransform) {
+        this.bakeTransform = bakeTransform;
+        if (!bakeTransform) {
+            bakedPath.rewind();
+            bakedSource = null;
+        }
+        invalidateStaticLayer();
+    }
+
+    public int getMaxFrameRate() {
+        return maxFrameRate;
+    }
+
+    /**
+     * 限制动画的最大帧率，加载占位图不需要跟随屏幕刷新率，如30
+     * @param maxFrameRate 0表示不限制
+     */
+    public void setMaxFrameRate(int maxFrameRate) {
+        this.maxFrameRate = Math.max(maxFrameRate, 0);
+        lastFrameTimeNanos = 0;
+    }
+
+    public int getBounceMode() {
+        return bounceMode;
+    }
+
+    /**
+     * 修改点击回弹的方式：
+     * @param bounceMode BOUNCE_LAYOUT：修改宽高，会重新布局|BOUNCE_SCALE：修改scaleX/scaleY，不重新布局
+     */
+    public void setBounceMode(int bounceMode) {
+        if (clickAnimator != null && clickAnimator.isRunning()) {
+            clickAnimator.end();
+        }
+        this.bounceMode = bounceMode;
+    }
+
+    public boolean isAsyncLoad() {
+        return asyncLoad;
+    }
+
+    /**
+     * 设置是否在后台线程加载边界数据，加载完成前显示占位路径
+     * @param asyncLoad 之后的setCityResource/setCreatePath生效
+     */
+    public void setAsyncLoad(boolean asyncLoad) {
+        this.asyncLoad = asyncLoad;
+    }
+
+    public boolean isProgressiveLoad() {
+        return progressiveLoad;
+    }
+
+    /**
+     * 设置异步加载时是否渐进显示：解析文本数据或调用GeometryProvider的过程中，
+     * 每当点数翻倍就显示一次已解析部分的简化轮廓（只画边界），完成后再显示完整的图形。
+     * 编译好的.msk和已缓存的数据直接显示，不经过这一步
+     * @param progressiveLoad 之后的异步加载生效，需要同时开启asyncLoad
+     */
+    public void setProgressiveLoad(boolean progressiveLoad) {
+        this.progressiveLoad = progressiveLoad;
+    }
+
+    public Executor getLoadExecutor() {
+        return loadExecutor;
+    }
+
+    /**
+     * 设置异步加载使用的线程池
+     * @param loadExecutor 为null时使用默认的线程池
+     */
+    public void setLoadExecutor(@Nullable Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
+    public Path getPlaceholderPath() {
+        return placeholderPath;
+    }
+
+    /**
+     * 设置异步加载时的占位路径
+     * @param placeholderPath 为null时显示默认的圆形
+     */
+    public void setPlaceholderPath(@Nullable Path placeholderPath) {
+        this.placeholderPath = placeholderPath;
+    }
+
+    public void setOnGeometryReadyListener(@Nullable OnGeometryReadyListener onGeometryReadyListener) {
+        this.onGeometryReadyListener = onGeometryReadyListener;
+    }
+
+    /**
+     * 查找view中某个点所在的区域，按实际边界判断，而不是边界矩形；索引还在后台生成时按边界矩形判断
+     * @param x view中的坐标
+     * @return 多区域模式下为setRegions中的序号，否则在图形内时为0，不在图形内时返回-1
+     */
+    public int findRegionAt(float x, float y) {
+        int ring = findRingAt(x, y, currentIndex());
+        return ring == -1 ? -1 : regionOf(ring);
+    }
+
+    /**
+     * 设置点击区域的回调，只有按下和抬起在同一个区块内时回调，点击图形外的区域不会响应
+     */
+    public void setOnRegionClickListener(@Nullable OnRegionClickListener onRegionClickListener) {
+        this.onRegionClickListener = onRegionClickListener;
+        if (onRegionClickListener != null) {
+            prepareIndex();
+        }
+    }
+
+    @Override
+    public void setOnClickListener(@Nullable OnClickListener l) {
+        super.setOnClickListener(l);
+        if (l != null) {
+            prepareIndex();
+        }
+    }
+
+    public interface OnRegionClickListener {
+        /**
+         * @param region 多区域模式下为setRegions中的序号，否则为0
+         * @param ring   区域中被点击的区块（如岛屿）的序号
+         */
+        void onRegionClick(MapSkeleton mapSkeleton, int region, int ring);
+    }
+
+    /**
+     * 当前的性能数据，可以在OnGeometryReadyListener中或定期读取后上报，找出过重的区域
+     */
+    public Metrics getMetrics() {
+        MapGeometry geometry = entry != null ? entry.geometry : null;
+        return new Metrics(geometry != null ? geometry.getPointCount() : 0, geometry != null ? geometry.getRingCount() : 0,
+                loadTimeNanos, pathBuildTimeNanos, drawTimeHistogram.clone(), maxDrawTimeNanos, animationFrameCount);
+    }
+
+    /**
+     * 清空绘制耗时和动画帧数，加载相关的数据保留
+     */
+    public void resetMetrics() {
+        Arrays.fill(drawTimeHistogram, 0);
+        maxDrawTimeNanos = 0;
+        animationFrameCount = 0;
+    }
+
+    /**
+     * 单个实例的性能数据快照
+     */
+    public static final class Metrics {
+        // 绘制耗时直方图的桶数：第0个桶小于250微秒，之后每个桶的上限翻倍，最后一个桶为16毫秒以上
+        public static final int DRAW_TIME_BUCKET_COUNT = 8;
+        private static final long FIRST_BUCKET_NANOS = 250_000;
+
+        private final int pointCount;
+        private final int ringCount;
+        private final long loadTimeNanos;
+        private final long pathBuildTimeNanos;
+        private final int[] drawTimeHistogram;
+        private final long maxDrawTimeNanos;
+        private final long animationFrameCount;
+
+        Metrics(int pointCount, int ringCount, long loadTimeNanos, long pathBuildTimeNanos,
+                int[] drawTimeHistogram, long maxDrawTimeNanos, long animationFrameCount) {
+            this.pointCount = pointCount;
+            this.ringCount = ringCount;
+            this.loadTimeNanos = loadTimeNanos;
+            this.pathBuildTimeNanos = pathBuildTimeNanos;
+            this.drawTimeHistogram = drawTimeHistogram;
+            this.maxDrawTimeNanos = maxDrawTimeNanos;
+            this.animationFrameCount = animationFrameCount;
+        }
+
+        static int bucketOf(long nanos) {
+            int bucket = 0;
+            while (bucket < DRAW_TIME_BUCKET_COUNT - 1 && nanos >= FIRST_BUCKET_NANOS << bucket) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        /**
+         * @return 第bucket个桶的上限（不含），最后一个桶为Long.MAX_VALUE
+         */
+        public static long getBucketUpperBoundNanos(int bucket) {
+            return bucket >= DRAW_TIME_BUCKET_COUNT - 1 ? Long.MAX_VALUE : FIRST_BUCKET_NANOS << bucket;
+        }
+
+        /**
+         * 点数，自定义路径或由PathParser生成的路径为0
+         */
+        public int getPointCount() {
+            return pointCount;
+        }
+
+        public int getRingCount() {
+            return ringCount;
+        }
+
+        /**
+         * 最近一次加载从开始到显示的耗时，包括异步加载的排队时间
+         */
+        public long getLoadTimeNanos() {
+            return loadTimeNanos;
+        }
+
+        /**
+         * 生成当前路径的耗时，命中缓存时为第一次生成时的耗时
+         */
+        public long getPathBuildTimeNanos() {
+            return pathBuildTimeNanos;
+        }
+
+        /**
+         * onDraw的耗时分布，长度为DRAW_TIME_BUCKET_COUNT，每次返回新的数组
+         */
+        public int[] getDrawTimeHistogram() {
+            return drawTimeHistogram.clone();
+        }
+
+        public int getDrawCount() {
+            int count = 0;
+            for (int value : drawTimeHistogram) {
+                count += value;
+            }
+            return count;
+        }
+
+        public long getMaxDrawTimeNanos() {
+            return maxDrawTimeNanos;
+        }
+
+        /**
+         * 动画驱动的帧数，限制帧率时跳过的vsync不计入
+         */
+        public long getAnimationFrameCount() {
+            return animationFrameCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "MapSkeleton.Metrics[points=%d, rings=%d, loadMs=%.2f, pathBuildMs=%.2f, "
+                            + "draws=%d, maxDrawMs=%.2f, histogram=%s, animationFrames=%d]",
+                    pointCount, ringCount, loadTimeNanos / 1e6, pathBuildTimeNanos / 1e6,
+                    getDrawCount(), maxDrawTimeNanos / 1e6, Arrays.toString(drawTimeHistogram), animationFrameCount);
+        }
+    }
+
+    /**
+     * 边界数据加载完成（异步加载时在主线程回调）
+     */
+    public interface OnGeometryReadyListener {
+        void onGeometryReady(MapSkeleton mapSkeleton);
+    }
+
     /**
      * 用户自定义地图的数据
      */
     public interface CreatePath {
         List<float[][]> getPath();
     }
+
+    /**
+     * 用户自定义地图的数据，逐个区块写入GeometrySink，如从数据库中边读边写
+     */
+    public interface GeometryProvider {
+        void writeGeometry(GeometrySink sink) throws IOException;
+
+        /**
+         * 把旧的CreatePath转换为GeometryProvider
+         */
+        static GeometryProvider from(CreatePath createPath) {
+            return sink -> {
+                List<float[][]> pathData = createPath.getPath();
+                for (int i = 0; i < pathData.size(); i++) {
+                    sink.beginRing();
+                    for (float[] point : pathData.get(i)) {
+                        sink.point(point[0], point[1]);
+                    }
+                    sink.endRing();
+                }
+            };
+        }
+    }
 }
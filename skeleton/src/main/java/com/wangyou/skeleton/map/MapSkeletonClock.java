@@ -0,0 +1,172 @@
+package com.wangyou.skeleton.map;
+
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * 所有MapSkeleton共享的动画时钟，每帧只向Choreographer注册一次回调，
+ * 动画进度由帧时间和周期计算，相同周期的实例亮条保持同步。
+ * 没有可见的实例时不再请求下一帧，系统关闭动画（动画时长缩放为0）或省电模式下暂停。只在主线程使用
+ */
+final class MapSkeletonClock implements Choreographer.FrameCallback {
+    // 不需要下一帧
+    static final long NO_FRAME = Long.MAX_VALUE;
+    // 限制帧率时允许提前的时间，避免vsync的抖动导致多跳过一帧
+    static final long FRAME_SLOP_NANOS = 4_000_000L;
+
+    private static MapSkeletonClock instance;
+
+    private final ArrayList<Client> clients = new ArrayList<>();
+    // 回调过程中可能注册或移除，遍历复用的快照
+    private Client[] frameClients = new Client[0];
+    private boolean frameRequested;
+
+    private final ContentResolver contentResolver;
+    private final PowerManager powerManager;
+    private float durationScale;
+    private boolean powerSave;
+
+    private MapSkeletonClock(Context context) {
+        contentResolver = context.getContentResolver();
+        powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        durationScale = readDurationScale();
+        powerSave = powerManager != null && powerManager.isPowerSaveMode();
+        contentResolver.registerContentObserver(Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE),
+                false, new ContentObserver(new Handler(Looper.getMainLooper())) {
+                    @Override
+                    public void onChange(boolean selfChange) {
+                        durationScale = readDurationScale();
+                        onSuspendChanged();
+                    }
+                });
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                powerSave = powerManager != null && powerManager.isPowerSaveMode();
+                onSuspendChanged();
+            }
+        }, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+    }
+
+    static MapSkeletonClock get(Context context) {
+        if (instance == null) {
+            instance = new MapSkeletonClock(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private float readDurationScale() {
+        return Settings.Global.getFloat(contentResolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+    }
+
+    /**
+     * 开发者选项中关闭了动画，或者处于省电模式
+     */
+    boolean isSuspended() {
+        return durationScale == 0 || powerSave;
+    }
+
+    private void onSuspendChanged() {
+        boolean suspended = isSuspended();
+        frameClients = clients.toArray(frameClients);
+        for (int i = 0, size = clients.size(); i < size; i++) {
+            Client client = frameClients[i];
+            frameClients[i] = null;
+            client.onSuspendChanged(suspended);
+        }
+        requestFrame();
+    }
+
+    void register(Client client) {
+        if (!clients.contains(client)) {
+            clients.add(client);
+        }
+        requestFrame();
+    }
+
+    void unregister(Client client) {
+        clients.remove(client);
+    }
+
+    /**
+     * 实例重新可见时调用，已经在等待下一帧时不重复注册
+     */
+    void requestFrame() {
+        if (!frameRequested && !clients.isEmpty() && !isSuspended()) {
+            frameRequested = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameRequested = false;
+        if (isSuspended()) {
+            return;
+        }
+        int size = clients.size();
+        frameClients = clients.toArray(frameClients);
+        long next = NO_FRAME;
+        for (int i = 0; i < size; i++) {
+            Client client = frameClients[i];
+            frameClients[i] = null;
+            next = Math.min(next, client.onFrame(frameTimeNanos));
+        }
+        if (next != NO_FRAME && !frameRequested) {
+            frameRequested = true;
+            // 所有实例都限制了帧率时，延迟到需要的时间再请求，中间的vsync不唤醒
+            long delayMillis = (next - FRAME_SLOP_NANOS - System.nanoTime()) / 1_000_000L;
+            if (delayMillis > 0) {
+                Choreographer.getInstance().postFrameCallbackDelayed(this, delayMillis);
+            } else {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+    }
+
+    /**
+     * @param durationMillis 一个周期的时长，会乘以系统的动画时长缩放
+     * @return 一个周期内的进度，0~1
+     */
+    float fraction(long frameTimeNanos, long durationMillis) {
+        long duration = Math.max((long) (durationMillis * durationScale * 1_000_000L), 1);
+        return (float) (frameTimeNanos % duration) / duration;
+    }
+
+    /**
+     * 与Animator默认的AccelerateDecelerateInterpolator相同
+     */
+    static float interpolate(float fraction) {
+        return (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f;
+    }
+
+    /**
+     * 透明度闪烁：fraction为0、1时为max，0.5时为min
+     */
+    static float pulse(float fraction, float min, float max) {
+        return (max + min) / 2f + (float) Math.cos(Math.PI * 2 * fraction) * (max - min) / 2f;
+    }
+
+    interface Client {
+        /**
+         * @return 需要下一帧的时间（与frameTimeNanos同一时间基准），不可见时返回NO_FRAME
+         */
+        long onFrame(long frameTimeNanos);
+
+        /**
+         * 动画被系统暂停或恢复
+         */
+        void onSuspendChanged(boolean suspended);
+    }
+}
@@ -0,0 +1,603 @@
+package com.wangyou.skeleton.map;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * 轻量的地图骨架图，可以用在ImageView、图片加载库的占位图、背景等任何接受Drawable的地方，
+ * 不需要为每个占位图创建一个MapSkeleton。
+ * 边界数据来自GeometryCache，相同区域的所有实例共享；newDrawable()得到的实例还共享颜色等属性（ConstantState），
+ * 单独修改前需要先调用mutate()。通过Animatable启动动画，与MapSkeleton共用同一个动画时钟，只在主线程使用
+ */
+public class MapSkeletonDrawable extends Drawable implements Animatable {
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    // 简化路径的容差，像素
+    private static final float LOD_TOLERANCE = 0.5f;
+
+    private MapSkeletonState state;
+    private boolean mutated;
+
+    // 绘制用的对象每个实例一份，属性在ConstantState中
+    private final SkeletonPainter painter = new SkeletonPainter();
+    // 把路径坐标适配到getBounds()中间的矩阵，只在边界变化时重新计算
+    private final Matrix viewportMatrix = new Matrix();
+    private final Rect viewportRect = new Rect();
+    private RectF viewportBounds;
+    private float viewportScale = 1;
+
+    private boolean running;
+    private boolean clockRegistered;
+    private boolean suspended;
+    private float process;
+    private float pulseAlpha = 1f;
+
+    private final MapSkeletonClock.Client clockClient = new MapSkeletonClock.Client() {
+        @Override
+        public long onFrame(long frameTimeNanos) {
+            if (getCallback() == null || !isVisible()) {
+                // 已经不在任何view中显示，不再占用时钟
+                unregisterClock();
+                return MapSkeletonClock.NO_FRAME;
+            }
+            MapSkeletonClock clock = MapSkeletonClock.get(state.context);
+            float fraction = MapSkeletonClock.interpolate(clock.fraction(frameTimeNanos, state.duration));
+            if (state.animationType == MapSkeleton.ANIMATION_LINE) {
+                process = fraction;
+            } else {
+                pulseAlpha = MapSkeletonClock.pulse(fraction, state.minAlpha, state.maxAlpha);
+            }
+            invalidateSelf();
+            return frameTimeNanos;
+        }
+
+        @Override
+        public void onSuspendChanged(boolean suspended) {
+            MapSkeletonDrawable.this.suspended = suspended;
+            invalidateSelf();
+        }
+    };
+
+    MapSkeletonDrawable(MapSkeletonState state) {
+        this.state = state;
+        state.geometry.attach(this);
+    }
+
+    /**
+     * 同步加载，没有命中缓存时会读取并解析文件，不要在主线程调用，或者先用GeometryCache.preload预加载
+     *
+     * @param resource 省份id或assets中的文件名，与MapSkeleton的cityResource相同
+     */
+    public static MapSkeletonDrawable fromResource(Context context, String resource) throws IOException {
+        MapSkeletonState state = new MapSkeletonState(context);
+        state.geometry.setEntry(GeometryCache.obtain(context.getApplicationContext(), resource, isProvince(resource)));
+        return new MapSkeletonDrawable(state);
+    }
+
+    /**
+     * 立即返回，没有命中缓存时在后台线程加载，加载完成前不绘制任何内容
+     *
+     * @param resource 省份id或assets中的文件名，与MapSkeleton的cityResource相同
+     */
+    public static MapSkeletonDrawable load(Context context, String resource) {
+        return load(context, resource, null);
+    }
+
+    /**
+     * @param listener 加载完成或失败后在主线程回调，命中缓存时也会回调
+     */
+    public static MapSkeletonDrawable load(Context context, String resource, @Nullable OnLoadListener listener) {
+        MapSkeletonState state = new MapSkeletonState(context);
+        GeometryCache.Entry cached = GeometryCache.peek(resource);
+        if (cached != null) {
+            state.geometry.setEntry(cached);
+            MapSkeletonDrawable drawable = new MapSkeletonDrawable(state);
+            if (listener != null) {
+                MAIN_HANDLER.post(() -> listener.onLoaded(drawable));
+            }
+            return drawable;
+        }
+        // 加载完成前mutate()或newDrawable()得到的实例共享同一个SharedGeometry，加载完成后一起显示
+        SharedGeometry geometry = state.geometry;
+        geometry.loading = true;
+        MapSkeletonDrawable drawable = new MapSkeletonDrawable(state);
+        Context appContext = context.getApplicationContext();
+        GeometryLoader.defaultExecutor().execute(() -> {
+            try {
+                GeometryCache.Entry entry = GeometryCache.obtain(appContext, resource, isProvince(resource));
+                MAIN_HANDLER.post(() -> {
+                    geometry.publish(entry);
+                    if (listener != null) {
+                        listener.onLoaded(drawable);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                MAIN_HANDLER.post(() -> {
+                    geometry.publish(null);
+                    if (listener != null) {
+                        listener.onLoadFailed(drawable, e);
+                    } else {
+                        e.printStackTrace();
+                    }
+                });
+            }
+        });
+        return drawable;
+    }
+
+    /**
+     * 使用自定义的路径，坐标系任意，绘制时等比缩放到getBounds()中间
+     */
+    public static MapSkeletonDrawable fromPath(Context context, Path path) {
+        MapSkeletonState state = new MapSkeletonState(context);
+        state.geometry.path = path;
+        state.geometry.bounds = new RectF();
+        path.computeBounds(state.geometry.bounds, true);
+        return new MapSkeletonDrawable(state);
+    }
+
+    private static boolean isProvince(String resource) {
+        return resource.indexOf('.') == -1;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        MapSkeletonState state = this.state;
+        SharedGeometry geometry = state.geometry;
+        RectF rectF = geometry.bounds;
+        Rect bounds = getBounds();
+        if (geometry.path == null || bounds.isEmpty() || rectF.isEmpty()) {
+            return;
+        }
+        if (viewportBounds != rectF || !viewportRect.equals(bounds)) {
+            viewportScale = MapSkeleton.fitViewport(viewportMatrix, rectF, bounds.width(), bounds.height());
+            viewportMatrix.postTranslate(bounds.left, bounds.top);
+            viewportBounds = rectF;
+            viewportRect.set(bounds);
+            prepareLod(geometry.entry, LOD_TOLERANCE / viewportScale);
+        }
+        // 占位图一般很小，小于半个像素的细节不绘制，简化路径生成前先绘制完整的路径
+        Path path = geometry.entry != null ? geometry.entry.peekLodPath(LOD_TOLERANCE / viewportScale) : null;
+        if (path == null) {
+            path = geometry.path;
+        }
+        boolean light = running && !suspended && state.animationType == MapSkeleton.ANIMATION_LINE;
+        // 属性（包括ColorFilter）可能被共享同一个ConstantState的其他实例修改，每次绘制前同步，没有变化时开销很小
+        painter.setBackgroundColor(state.fillColor);
+        painter.setStrokeColor(state.strokeColor);
+        painter.setLabel(state.label, state.labelSize, state.labelColor);
+        painter.setAlpha(state.alpha / 255f * (running && !light ? pulseAlpha : 1f));
+        painter.setLightAlpha(state.alpha);
+        painter.setColorFilter(state.colorFilter);
+
+        // 与MapSkeleton的绘制顺序相同：背景、文字、亮条、边界
+        painter.drawBackground(canvas, path, viewportMatrix);
+        painter.drawLabel(canvas, bounds.exactCenterX(), bounds.exactCenterY());
+        if (light) {
+            painter.drawLight(canvas, path, viewportMatrix, rectF, state.lightAngle, state.lightColor, process, null);
+        }
+        // 画布被缩放时线宽需要除以缩放比例
+        painter.drawStroke(canvas, path, viewportMatrix, state.strokeWidth / viewportScale);
+    }
+
+    /**
+     * 大小或边界变化后在后台生成简化路径，生成后重绘
+     */
+    private void prepareLod(@Nullable GeometryCache.Entry entry, float tolerance) {
+        if (entry == null || entry.peekLodPath(tolerance) != null) {
+            return;
+        }
+        GeometryLoader.defaultExecutor().execute(() -> {
+            entry.getLodPath(tolerance);
+            MAIN_HANDLER.post(this::invalidateSelf);
+        });
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        if (isVisible()) {
+            registerClock();
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        unregisterClock();
+        process = 0;
+        pulseAlpha = 1f;
+        invalidateSelf();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (running) {
+            if (visible) {
+                registerClock();
+            } else {
+                unregisterClock();
+            }
+        }
+        return changed;
+    }
+
+    private void registerClock() {
+        if (clockRegistered) {
+            return;
+        }
+        MapSkeletonClock clock = MapSkeletonClock.get(state.context);
+        clockRegistered = true;
+        suspended = clock.isSuspended();
+        clock.register(clockClient);
+    }
+
+    private void unregisterClock() {
+        if (clockRegistered) {
+            clockRegistered = false;
+            MapSkeletonClock.get(state.context).unregister(clockClient);
+        }
+    }
+
+    public int getFillColor() {
+        return state.fillColor;
+    }
+
+    /**
+     * 以下属性保存在ConstantState中，共享同一个ConstantState的实例会一起改变，需要单独修改时先调用mutate()
+     */
+    public void setFillColor(int fillColor) {
+        state.fillColor = fillColor;
+        invalidateSelf();
+    }
+
+    public int getStrokeColor() {
+        return state.strokeColor;
+    }
+
+    public void setStrokeColor(int strokeColor) {
+        state.strokeColor = strokeColor;
+        invalidateSelf();
+    }
+
+    public float getStrokeWidth() {
+        return state.strokeWidth;
+    }
+
+    /**
+     * @param strokeWidth 边界的宽度，像素
+     */
+    public void setStrokeWidth(float strokeWidth) {
+        state.strokeWidth = strokeWidth;
+        invalidateSelf();
+    }
+
+    @Nullable
+    public String getLabel() {
+        return state.label;
+    }
+
+    /**
+     * @param label 显示在图形中间的文字，与MapSkeleton的cityName相同，为null时不显示
+     */
+    public void setLabel(@Nullable String label) {
+        state.label = label;
+        invalidateSelf();
+    }
+
+    public int getLabelColor() {
+        return state.labelColor;
+    }
+
+    public void setLabelColor(int labelColor) {
+        state.labelColor = labelColor;
+        invalidateSelf();
+    }
+
+    public float getLabelSize() {
+        return state.labelSize;
+    }
+
+    /**
+     * @param labelSize 文字大小，像素
+     */
+    public void setLabelSize(float labelSize) {
+        state.labelSize = labelSize;
+        invalidateSelf();
+    }
+
+    public int getLightColor() {
+        return state.lightColor;
+    }
+
+    public void setLightColor(int lightColor) {
+        state.lightColor = lightColor;
+        invalidateSelf();
+    }
+
+    public float getLightAngle() {
+        return state.lightAngle;
+    }
+
+    /**
+     * @param lightAngle 0代表竖向，90代表横向
+     */
+    public void setLightAngle(float lightAngle) {
+        state.lightAngle = lightAngle;
+        invalidateSelf();
+    }
+
+    public int getDuration() {
+        return state.duration;
+    }
+
+    /**
+     * @param duration 一个周期的时长，毫秒
+     */
+    public void setDuration(int duration) {
+        state.duration = duration;
+    }
+
+    public int getAnimationType() {
+        return state.animationType;
+    }
+
+    /**
+     * @param animationType MapSkeleton.ANIMATION_LINE：亮条，其他：透明度闪烁（修改Paint的透明度）
+     */
+    public void setAnimationType(int animationType) {
+        state.animationType = animationType;
+        pulseAlpha = 1f;
+        invalidateSelf();
+    }
+
+    /**
+     * 透明度闪烁的范围
+     */
+    public void setAlphaRange(float minAlpha, float maxAlpha) {
+        state.minAlpha = minAlpha;
+        state.maxAlpha = maxAlpha;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (state.alpha != alpha) {
+            state.alpha = alpha;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return state.alpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        state.colorFilter = colorFilter;
+        invalidateSelf();
+    }
+
+    @Nullable
+    @Override
+    public ColorFilter getColorFilter() {
+        return state.colorFilter;
+    }
+
+    public int getIntrinsicSize() {
+        return state.intrinsicSize;
+    }
+
+    /**
+     * wrap_content时的大小：较长的一边为intrinsicSize，另一边按边界的宽高比计算。
+     * 边界坐标是经纬度等任意单位，不能直接作为像素大小。后台加载完成前为intrinsicSize的正方形
+     *
+     * @param intrinsicSize 像素，小于等于0时没有固有大小，需要调用setBounds或由view指定大小
+     */
+    public void setIntrinsicSize(int intrinsicSize) {
+        state.intrinsicSize = intrinsicSize;
+        invalidateSelf();
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        RectF rectF = state.geometry.bounds;
+        if (state.intrinsicSize <= 0 || rectF.isEmpty() || rectF.width() >= rectF.height()) {
+            return state.intrinsicSize > 0 ? state.intrinsicSize : -1;
+        }
+        return Math.max(1, Math.round(state.intrinsicSize * rectF.width() / rectF.height()));
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        RectF rectF = state.geometry.bounds;
+        if (state.intrinsicSize <= 0 || rectF.isEmpty() || rectF.height() >= rectF.width()) {
+            return state.intrinsicSize > 0 ? state.intrinsicSize : -1;
+        }
+        return Math.max(1, Math.round(state.intrinsicSize * rectF.height() / rectF.width()));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public int getChangingConfigurations() {
+        return super.getChangingConfigurations() | state.changingConfigurations;
+    }
+
+    @NonNull
+    @Override
+    public Drawable mutate() {
+        if (!mutated && super.mutate() == this) {
+            state = new MapSkeletonState(state);
+            mutated = true;
+        }
+        return this;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        state.changingConfigurations = getChangingConfigurations();
+        return state;
+    }
+
+    /**
+     * load的结果，在主线程回调
+     */
+    public interface OnLoadListener {
+        void onLoaded(MapSkeletonDrawable drawable);
+
+        /**
+         * 加载失败，drawable不会绘制任何内容，可以换成其他占位图
+         */
+        void onLoadFailed(MapSkeletonDrawable drawable, Exception error);
+    }
+
+    /**
+     * 边界数据，mutate()复制ConstantState时不复制，原来的和复制的ConstantState共用同一个，
+     * 后台加载完成后所有使用它的实例都会显示。只在主线程修改
+     */
+    static final class SharedGeometry {
+        @Nullable
+        GeometryCache.Entry entry;
+        @Nullable
+        Path path;
+        RectF bounds = new RectF();
+        // 正在后台加载，加载完成前创建的实例需要在完成后重绘
+        boolean loading;
+        private final ArrayList<WeakReference<MapSkeletonDrawable>> waiting = new ArrayList<>();
+
+        void setEntry(GeometryCache.Entry entry) {
+            this.entry = entry;
+            path = entry.path;
+            bounds = entry.bounds;
+        }
+
+        void attach(MapSkeletonDrawable drawable) {
+            if (loading) {
+                waiting.add(new WeakReference<>(drawable));
+            }
+        }
+
+        /**
+         * 加载结束，重绘加载过程中创建的所有实例
+         *
+         * @param entry 加载失败时为null，不绘制任何内容
+         */
+        void publish(@Nullable GeometryCache.Entry entry) {
+            if (entry != null) {
+                setEntry(entry);
+            }
+            loading = false;
+            for (WeakReference<MapSkeletonDrawable> reference : waiting) {
+                MapSkeletonDrawable drawable = reference.get();
+                if (drawable != null) {
+                    drawable.invalidateSelf();
+                }
+            }
+            waiting.clear();
+        }
+    }
+
+    /**
+     * 共享的属性和边界数据，边界数据不可变
+     */
+    static final class MapSkeletonState extends ConstantState {
+        // 只保存application context，用于获取动画时钟
+        final Context context;
+        final SharedGeometry geometry;
+
+        // 默认值与DefaultMapSkeleton样式相同
+        int fillColor = 0xFFF2F3F5;
+        int strokeColor = 0xFFBABABA;
+        float strokeWidth;
+        @Nullable
+        String label;
+        int labelColor = 0xFFBABABA;
+        float labelSize;
+        int lightColor = Color.WHITE;
+        float lightAngle = 30;
+        int duration = 600;
+        int animationType = MapSkeleton.ANIMATION_PAINT_ALPHA;
+        float minAlpha = 0.4f;
+        float maxAlpha = 1f;
+        int alpha = 255;
+        @Nullable
+        ColorFilter colorFilter;
+        int intrinsicSize;
+        int changingConfigurations;
+
+        MapSkeletonState(Context context) {
+            this.context = context.getApplicationContext();
+            geometry = new SharedGeometry();
+            strokeWidth = 2 * context.getResources().getDisplayMetrics().density;
+            labelSize = 25 * context.getResources().getDisplayMetrics().density;
+            intrinsicSize = Math.round(100 * context.getResources().getDisplayMetrics().density);
+        }
+
+        MapSkeletonState(MapSkeletonState other) {
+            context = other.context;
+            geometry = other.geometry;
+            fillColor = other.fillColor;
+            strokeColor = other.strokeColor;
+            strokeWidth = other.strokeWidth;
+            label = other.label;
+            labelColor = other.labelColor;
+            labelSize = other.labelSize;
+            lightColor = other.lightColor;
+            lightAngle = other.lightAngle;
+            duration = other.duration;
+            animationType = other.animationType;
+            minAlpha = other.minAlpha;
+            maxAlpha = other.maxAlpha;
+            alpha = other.alpha;
+            colorFilter = other.colorFilter;
+            intrinsicSize = other.intrinsicSize;
+            changingConfigurations = other.changingConfigurations;
+        }
+
+        @NonNull
+        @Override
+        public Drawable newDrawable() {
+            return new MapSkeletonDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return changingConfigurations;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.wangyou.skeleton.map;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import com.wangyou.skeleton.map.geometry.GeometryBuilder;
+import com.wangyou.skeleton.map.geometry.GeometrySimplifier;
+import com.wangyou.skeleton.map.geometry.GeometrySink;
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+
+/**
+ * 渐进加载：数据照常写入builder，同时每当点数翻倍时把已经解析出的部分简化后发布一次，
+ * 大文件也能在解析开始后很快显示出轮廓。每次发布都复制一次已有的点，总复制量不超过点数的两倍
+ */
+final class ProgressiveOutline implements GeometrySink {
+    // 第一次发布时的点数
+    private static final int FIRST_PUBLISH_POINTS = 256;
+    // 预览的精度：当前边界长边的1/512
+    private static final int PREVIEW_RESOLUTION = 512;
+
+    /**
+     * 在加载线程回调
+     */
+    interface Listener {
+        /**
+         * @param path   已经解析出的部分的简化路径，坐标系与最终结果可能不同
+         * @param bounds path的边界
+         */
+        void onOutline(Path path, RectF bounds);
+
+        /**
+         * 在加载线程调用，返回true后不再简化和发布轮廓。解析本身继续，同一区域可能还有其他等待者
+         *
+         * @return 这次加载已经被新的加载取代
+         */
+        boolean isCancelled();
+    }
+
+    private final GeometryBuilder builder;
+    private final boolean latitudeFlipped;
+    private final Listener listener;
+    // 上下翻转，latitudeFlipped时使用
+    private final Matrix flip = new Matrix();
+    private int nextPublish = FIRST_PUBLISH_POINTS;
+
+    /**
+     * @param latitudeFlipped 写入的是经纬度，最终结果会反转纬度，预览也需要上下翻转
+     */
+    ProgressiveOutline(GeometryBuilder builder, boolean latitudeFlipped, Listener listener) {
+        this.builder = builder;
+        this.latitudeFlipped = latitudeFlipped;
+        this.listener = listener;
+        flip.setScale(1, -1);
+    }
+
+    @Override
+    public void beginRing() {
+        builder.beginRing();
+    }
+
+    @Override
+    public void point(float x, float y) {
+        builder.point(x, y);
+        if (builder.getPointCount() >= nextPublish) {
+            publish();
+        }
+    }
+
+    @Override
+    public void endRing() {
+        builder.endRing();
+    }
+
+    @Override
+    public void ring(float[] coordinates, int offset, int pointCount) {
+        builder.ring(coordinates, offset, pointCount);
+        if (builder.getPointCount() >= nextPublish) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        nextPublish = builder.getPointCount() * 2;
+        if (listener.isCancelled()) {
+            return;
+        }
+        MapGeometry snapshot = builder.snapshot(0);
+        float size = Math.max(snapshot.getWidth(), snapshot.getHeight());
+        if (size > 0) {
+            snapshot = GeometrySimplifier.simplify(snapshot, size / PREVIEW_RESOLUTION);
+        }
+        Path path = GeometryLoader.buildPath(snapshot);
+        if (latitudeFlipped) {
+            path.transform(flip);
+        }
+        RectF bounds = new RectF();
+        path.computeBounds(bounds, true);
+        listener.onOutline(path, bounds);
+    }
+}
@@ -0,0 +1,99 @@
+package com.wangyou.skeleton.map;
+
+import android.content.res.Resources;
+import android.os.Trace;
+import android.util.Xml;
+
+import androidx.annotation.Nullable;
+
+import com.wangyou.skeleton.R;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * chinahigh.xml中省份id -> pathData的索引。
+ * 整个进程只用XmlPullParser流式读取一次，之后查询某个省份只需要解析该省份自己的pathData
+ */
+final class ProvinceIndex {
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+
+    private static volatile ProvinceIndex instance;
+
+    private final Map<String, String> pathDataById;
+    // xml中的原始id，保持顺序
+    private final Set<String> ids;
+
+    private ProvinceIndex(Map<String, String> pathDataById, Set<String> ids) {
+        this.pathDataById = pathDataById;
+        this.ids = Collections.unmodifiableSet(ids);
+    }
+
+    static ProvinceIndex get(Resources resources) throws IOException {
+        ProvinceIndex index = instance;
+        if (index == null) {
+            synchronized (ProvinceIndex.class) {
+                index = instance;
+                if (index == null) {
+                    // 只在进程中第一次使用省份时执行，扫描整个chinahigh.xml
+                    Trace.beginSection("MapSkeleton#indexProvinces");
+                    try {
+                        index = build(resources);
+                    } finally {
+                        Trace.endSection();
+                    }
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static ProvinceIndex build(Resources resources) throws IOException {
+        Map<String, String> pathDataById = new HashMap<>();
+        Set<String> ids = new LinkedHashSet<>();
+        try (InputStream inputStream = resources.openRawResource(R.raw.chinahigh)) {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+            parser.setInput(inputStream, null);
+            int event;
+            while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (event != XmlPullParser.START_TAG || !"path".equals(parser.getName())) {
+                    continue;
+                }
+                String id = parser.getAttributeValue(null, "id");
+                String pathData = parser.getAttributeValue(ANDROID_NAMESPACE, "pathData");
+                if (id == null || pathData == null) {
+                    continue;
+                }
+                ids.add(id);
+                pathDataById.put(id, pathData);
+                // 部分id末尾有空格，如"Xizang (Tibet) "，去掉空格后也能查到
+                String trimmed = id.trim();
+                if (!trimmed.equals(id) && !pathDataById.containsKey(trimmed)) {
+                    pathDataById.put(trimmed, pathData);
+                }
+            }
+        } catch (XmlPullParserException e) {
+            throw new IOException("Invalid chinahigh.xml", e);
+        }
+        return new ProvinceIndex(pathDataById, ids);
+    }
+
+    @Nullable
+    String getPathData(String id) {
+        return pathDataById.get(id);
+    }
+
+    Set<String> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,147 @@
+package com.wangyou.skeleton.map;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 骨架的绘制：背景、文字、亮条、边界，MapSkeleton和MapSkeletonDrawable共用。
+ * 画笔只在属性变化时更新，绘制过程中不创建对象
+ */
+final class SkeletonPainter {
+    private final Paint backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint();
+    private final Rect labelBounds = new Rect();
+    private final Paint lightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint strokePaint = new Paint();
+    final LightBand lightBand = new LightBand();
+
+    private int backgroundColor;
+    private int strokeColor;
+    @Nullable
+    private String label;
+    private float labelSize;
+    private int labelColor;
+    @Nullable
+    private ColorFilter colorFilter;
+
+    SkeletonPainter() {
+        backgroundPaint.setStyle(Paint.Style.FILL);
+        lightPaint.setStyle(Paint.Style.FILL);
+        strokePaint.setStyle(Paint.Style.STROKE);
+        labelPaint.setTextAlign(Paint.Align.LEFT);
+    }
+
+    void setBackgroundColor(int color) {
+        backgroundColor = color;
+        backgroundPaint.setColor(color);
+    }
+
+    void setStrokeColor(int color) {
+        strokeColor = color;
+        strokePaint.setColor(color);
+    }
+
+    /**
+     * 文字居中显示在图形上，与之前相同时不重新计算大小
+     *
+     * @param label 为空时不绘制文字
+     */
+    void setLabel(@Nullable String label, float textSize, int color) {
+        if (TextUtils.equals(this.label, label) && labelSize == textSize && labelColor == color) {
+            return;
+        }
+        this.label = label;
+        labelSize = textSize;
+        labelColor = color;
+        labelPaint.setTextSize(textSize);
+        labelPaint.setColor(color);
+        // 大小为int值，此时先计算正常状态下的宽高，然后再进行缩放
+        if (!TextUtils.isEmpty(label)) {
+            labelPaint.getTextBounds(label, 0, label.length(), labelBounds);
+        } else {
+            labelBounds.setEmpty();
+        }
+    }
+
+    /**
+     * 与之前相同时不修改Paint，MapSkeletonDrawable每次绘制前都会调用
+     */
+    void setColorFilter(@Nullable ColorFilter colorFilter) {
+        if (this.colorFilter == colorFilter) {
+            return;
+        }
+        this.colorFilter = colorFilter;
+        backgroundPaint.setColorFilter(colorFilter);
+        labelPaint.setColorFilter(colorFilter);
+        lightPaint.setColorFilter(colorFilter);
+        strokePaint.setColorFilter(colorFilter);
+    }
+
+    /**
+     * 按各自颜色的透明度乘以alpha，三个Paint分别绘制，重叠部分的效果与View.setAlpha略有不同。亮条不受影响
+     */
+    void setAlpha(float alpha) {
+        backgroundPaint.setAlpha(Math.round(Color.alpha(backgroundColor) * alpha));
+        labelPaint.setAlpha(Math.round(Color.alpha(labelColor) * alpha));
+        strokePaint.setAlpha(Math.round(Color.alpha(strokeColor) * alpha));
+    }
+
+    void setLightAlpha(int alpha) {
+        lightPaint.setAlpha(alpha);
+    }
+
+    /**
+     * @param matrix 不为null时先把画布变换到路径的坐标系
+     */
+    void drawBackground(Canvas canvas, Path path, @Nullable Matrix matrix) {
+        int saveCount = save(canvas, matrix);
+        canvas.drawPath(path, backgroundPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 文字不随路径缩放，在画布原来的坐标系中以(centerX, centerY)为中心绘制
+     */
+    void drawLabel(Canvas canvas, float centerX, float centerY) {
+        if (!TextUtils.isEmpty(label)) {
+            canvas.drawText(label, centerX - labelBounds.width() / 2f, centerY + labelBounds.height() / 2f, labelPaint);
+        }
+    }
+
+    /**
+     * @param transform 不为null时path已经变换到屏幕坐标系，见LightBand.draw
+     */
+    void drawLight(Canvas canvas, Path path, @Nullable Matrix matrix, RectF rectF, float angle, int color,
+                   float process, @Nullable Matrix transform) {
+        int saveCount = save(canvas, matrix);
+        lightBand.draw(canvas, path, lightPaint, rectF, angle, color, process, transform);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * @param strokeWidth 画布被缩放时需要先除以缩放比例
+     */
+    void drawStroke(Canvas canvas, Path path, @Nullable Matrix matrix, float strokeWidth) {
+        int saveCount = save(canvas, matrix);
+        strokePaint.setStrokeWidth(strokeWidth);
+        canvas.drawPath(path, strokePaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private static int save(Canvas canvas, @Nullable Matrix matrix) {
+        int saveCount = canvas.save();
+        if (matrix != null) {
+            canvas.concat(matrix);
+        }
+        return saveCount;
+    }
+}
@@ -0,0 +1,149 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式解析高德行政区边界格式：区块之间用|分隔，点之间用;分隔，经纬度之间用,分隔。
+ * 直接在字节上解析数字并写入GeometrySink，不创建中间String，
+ * 结果与旧的split解析完全一致（包括纬度反转）。
+ * 唯一的区别：空的点和区块（如;;、||、开头的|）直接跳过，旧的split解析会抛出异常并显示默认图形
+ */
+public final class BoundaryParser {
+    private static final int BUFFER_SIZE = 8192;
+    // 数字最长的字符数，超过时认为数据有误
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final GeometrySink builder;
+    private final byte[] token = new byte[MAX_TOKEN_LENGTH];
+    private int tokenLength;
+    // 当前点已经读到的字段数，0：经度，1：纬度，>=2：多余字段忽略
+    private int field;
+    private float x;
+    private float y;
+    private boolean inRing;
+
+    public BoundaryParser(GeometrySink builder) {
+        this.builder = builder;
+    }
+
+    public static MapGeometry parse(InputStream inputStream) throws IOException {
+        GeometryBuilder builder = new GeometryBuilder();
+        parse(inputStream, builder);
+        builder.flipLatitude();
+        return builder.build(MapGeometry.FLAG_LATITUDE_FLIPPED);
+    }
+
+    /**
+     * 经纬度原样写入sink，不反转纬度
+     */
+    public static void parse(InputStream inputStream, GeometrySink sink) throws IOException {
+        BoundaryParser parser = new BoundaryParser(sink);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            parser.feed(buffer, 0, read);
+        }
+        parser.finish();
+    }
+
+    public static MapGeometry parse(ByteBuffer byteBuffer) {
+        GeometryBuilder builder = new GeometryBuilder(byteBuffer.remaining() / 20);
+        BoundaryParser parser = new BoundaryParser(builder);
+        if (byteBuffer.hasArray()) {
+            parser.feed(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+        } else {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer source = byteBuffer.duplicate();
+            while (source.hasRemaining()) {
+                int length = Math.min(buffer.length, source.remaining());
+                source.get(buffer, 0, length);
+                parser.feed(buffer, 0, length);
+            }
+        }
+        parser.finish();
+        builder.flipLatitude();
+        return builder.build(MapGeometry.FLAG_LATITUDE_FLIPPED);
+    }
+
+    /**
+     * 输入一段数据，数字可以跨越两次调用
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            byte b = bytes[i];
+            switch (b) {
+                case ',':
+                    endField();
+                    break;
+                case ';':
+                    endPoint();
+                    break;
+                case '|':
+                    endPoint();
+                    endRing();
+                    break;
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    break;
+                default:
+                    if (tokenLength == MAX_TOKEN_LENGTH) {
+                        throw new NumberFormatException("Token too long: " + tokenString());
+                    }
+                    token[tokenLength++] = b;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 数据结束，处理最后一个点
+     */
+    public void finish() {
+        endPoint();
+        endRing();
+    }
+
+    private void endRing() {
+        if (inRing) {
+            builder.endRing();
+            inRing = false;
+        }
+    }
+
+    private void endField() {
+        if (field == 0) {
+            x = FloatParser.parseFloat(token, 0, tokenLength);
+        } else if (field == 1) {
+            y = FloatParser.parseFloat(token, 0, tokenLength);
+        }
+        field++;
+        tokenLength = 0;
+    }
+
+    private void endPoint() {
+        if (field == 0 && tokenLength == 0) {
+            // 空的点，例如末尾多余的;
+            return;
+        }
+        endField();
+        if (field < 2) {
+            throw new NumberFormatException("Missing latitude");
+        }
+        if (!inRing) {
+            builder.beginRing();
+            inRing = true;
+        }
+        builder.point(x, y);
+        field = 0;
+    }
+
+    private String tokenString() {
+        return new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 直接从ASCII字节解析float，避免为每个数字创建String
+ */
+final class FloatParser {
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private FloatParser() {
+    }
+
+    /**
+     * 从字节中解析float，结果与Float.parseFloat一致。
+     * 常见的十进制小数走快速路径，其他情况（指数、过长、无法保证舍入正确）回退到Float.parseFloat
+     */
+    static float parseFloat(byte[] bytes, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        // 有效数字位数（不含前导0）
+        int digits = 0;
+        int digitChars = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        boolean valid = i < end;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                if (digits > 0 || b != '0') {
+                    digits++;
+                }
+                digitChars++;
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                valid = false;
+                break;
+            }
+        }
+        if (valid && digits <= 15 && fractionDigits < POW10.length && digitChars > 0) {
+            // 整数与10的幂都能被double精确表示，除法的结果是正确舍入的double
+            double value = mantissa / POW10[fractionDigits];
+            // double再转float时，只有恰好落在两个float中点时可能二次舍入出错，这种情况回退
+            long bits = Double.doubleToRawLongBits(value);
+            if ((bits & 0x1FFFFFFFL) != 0x10000000L
+                    && (value == 0 || value >= Float.MIN_NORMAL)) {
+                float result = (float) value;
+                return negative ? -result : result;
+            }
+        }
+        return Float.parseFloat(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,130 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.util.Arrays;
+
+/**
+ * 逐点构建MapGeometry，内部为可增长的float数组，不会为每个点创建对象
+ */
+public final class GeometryBuilder implements GeometrySink {
+    private float[] coordinates;
+    private int size;
+    private int[] ringOffsets = new int[8];
+    private int ringCount;
+    private boolean inRing;
+
+    public GeometryBuilder() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedPoints 预估点数，用于减少扩容
+     */
+    public GeometryBuilder(int expectedPoints) {
+        coordinates = new float[Math.max(16, expectedPoints * 2)];
+    }
+
+    @Override
+    public void beginRing() {
+        if (inRing) {
+            endRing();
+        }
+        ringOffsets[ringCount] = size / 2;
+        inRing = true;
+    }
+
+    @Override
+    public void point(float x, float y) {
+        if (!inRing) {
+            beginRing();
+        }
+        if (size + 2 > coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+        }
+        coordinates[size++] = x;
+        coordinates[size++] = y;
+    }
+
+    @Override
+    public void endRing() {
+        if (!inRing) {
+            return;
+        }
+        inRing = false;
+        if (ringOffsets[ringCount] == size / 2) {
+            // 空区块直接丢弃
+            return;
+        }
+        ringCount++;
+        if (ringCount + 1 >= ringOffsets.length) {
+            ringOffsets = Arrays.copyOf(ringOffsets, ringOffsets.length * 2);
+        }
+        ringOffsets[ringCount] = size / 2;
+    }
+
+    @Override
+    public void ring(float[] coordinates, int offset, int pointCount) {
+        beginRing();
+        if (size + pointCount * 2 > this.coordinates.length) {
+            this.coordinates = Arrays.copyOf(this.coordinates, Math.max(this.coordinates.length * 2, size + pointCount * 2));
+        }
+        System.arraycopy(coordinates, offset, this.coordinates, size, pointCount * 2);
+        size += pointCount * 2;
+        endRing();
+    }
+
+    public int getPointCount() {
+        return size / 2;
+    }
+
+    public int getRingCount() {
+        return ringCount;
+    }
+
+    /**
+     * 经度上面大，下面小，与view的Y轴方向是相反的，需要反转。
+     * 与旧的解析方式保持一致：max从0开始，y = max - (y - min)
+     */
+    public void flipLatitude() {
+        float max = 0;
+        float min = Float.MAX_VALUE;
+        for (int i = 1; i < size; i += 2) {
+            max = Math.max(max, coordinates[i]);
+            min = Math.min(min, coordinates[i]);
+        }
+        for (int i = 1; i < size; i += 2) {
+            coordinates[i] = max - (coordinates[i] - min);
+        }
+    }
+
+    /**
+     * 生成MapGeometry，数组会按实际大小复制一份，之后builder可以继续复用
+     */
+    public MapGeometry build(int flags) {
+        endRing();
+        ringOffsets[ringCount] = size / 2;
+        return new MapGeometry(Arrays.copyOf(coordinates, size),
+                Arrays.copyOf(ringOffsets, ringCount + 1), ringCount, flags);
+    }
+
+    /**
+     * 复制当前已写入的数据，还没有结束的区块也包含在内，之后可以继续写入
+     */
+    public MapGeometry snapshot(int flags) {
+        int count = ringCount;
+        int[] offsets = Arrays.copyOf(ringOffsets, ringCount + 2);
+        if (inRing && ringOffsets[ringCount] < size / 2) {
+            count++;
+        }
+        offsets[count] = size / 2;
+        return new MapGeometry(Arrays.copyOf(coordinates, size), offsets, count, flags);
+    }
+
+    /**
+     * 清空已有数据，保留已分配的数组
+     */
+    public void reset() {
+        size = 0;
+        ringCount = 0;
+        inRing = false;
+    }
+}
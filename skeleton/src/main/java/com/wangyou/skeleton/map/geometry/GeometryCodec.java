@@ -0,0 +1,169 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Locale;
+
+/**
+ * 编译后的二进制边界格式(.msk)，构建时由txt/矢量xml生成，运行时不需要任何文本解析。
+ * 小端序，布局如下：
+ * <pre>
+ * int    magic 'MSKG'
+ * int    version
+ * int    flags        MapGeometry.FLAG_* | FLAG_INT_COORDINATES
+ * int    ringCount
+ * int    pointCount
+ * float  left, top, right, bottom
+ * float  step         整数坐标的量化步长，x = left + qx * step
+ * int    ringOffsets[ringCount + 1]
+ * float|ushort coordinates[pointCount * 2]
+ * </pre>
+ * 整数坐标为16位无符号数，坐标部分的大小是float的一半，偏差不超过较长一边的1/131070
+ */
+public final class GeometryCodec {
+    public static final String EXTENSION = ".msk";
+
+    // 坐标以16位整数保存，相对边界左上角量化
+    public static final int FLAG_INT_COORDINATES = 1 << 8;
+
+    private static final int MAGIC = 'M' | 'S' << 8 | 'K' << 16 | 'G' << 24;
+    // 2：整数坐标由int改为16位
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 40;
+    // 整数坐标的量化精度，铺满远大于屏幕的尺寸时偏差仍小于半个像素
+    private static final int INT_RESOLUTION = 0xFFFF;
+
+    private GeometryCodec() {
+    }
+
+    /**
+     * 判断数据是否为编译后的格式，不改变buffer的position
+     */
+    public static boolean isEncoded(ByteBuffer buffer) {
+        return buffer.remaining() >= HEADER_SIZE
+                && buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+    }
+
+    public static void write(MapGeometry geometry, OutputStream outputStream, boolean intCoordinates) throws IOException {
+        int ringCount = geometry.getRingCount();
+        int pointCount = geometry.getPointCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (ringCount + 1) * 4
+                        + pointCount * coordinateSize(intCoordinates))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        float step = Math.max(geometry.getWidth(), geometry.getHeight()) / INT_RESOLUTION;
+        if (step == 0) {
+            step = 1;
+        }
+        int flags = geometry.getFlags() & ~FLAG_INT_COORDINATES;
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(intCoordinates ? flags | FLAG_INT_COORDINATES : flags)
+                .putInt(ringCount)
+                .putInt(pointCount)
+                .putFloat(geometry.getLeft())
+                .putFloat(geometry.getTop())
+                .putFloat(geometry.getRight())
+                .putFloat(geometry.getBottom())
+                .putFloat(step);
+        int first = geometry.getRingStart(0);
+        for (int i = 0; i < ringCount; i++) {
+            buffer.putInt(geometry.getRingStart(i) - first);
+        }
+        buffer.putInt(pointCount);
+        for (int i = first; i < first + pointCount; i++) {
+            if (intCoordinates) {
+                buffer.putShort(quantize(geometry.getX(i) - geometry.getLeft(), step));
+                buffer.putShort(quantize(geometry.getY(i) - geometry.getTop(), step));
+            } else {
+                buffer.putFloat(geometry.getX(i));
+                buffer.putFloat(geometry.getY(i));
+            }
+        }
+        outputStream.write(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * 每个点(x, y)占用的字节数
+     */
+    private static int coordinateSize(boolean intCoordinates) {
+        return intCoordinates ? 4 : 8;
+    }
+
+    private static short quantize(float offset, float step) {
+        return (short) Math.min(Math.max(Math.round(offset / step), 0), INT_RESOLUTION);
+    }
+
+    /**
+     * 从buffer的当前位置读取，可以是MappedByteBuffer
+     *
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static MapGeometry read(ByteBuffer source) {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled map geometry");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported map geometry version: " + version);
+        }
+        int flags = buffer.getInt();
+        int ringCount = buffer.getInt();
+        int pointCount = buffer.getInt();
+        float left = buffer.getFloat();
+        float top = buffer.getFloat();
+        float right = buffer.getFloat();
+        float bottom = buffer.getFloat();
+        float step = buffer.getFloat();
+        boolean intCoordinates = (flags & FLAG_INT_COORDINATES) != 0;
+        if (ringCount < 0 || pointCount < 0
+                || buffer.remaining() < (ringCount + 1) * 4L + (long) pointCount * coordinateSize(intCoordinates)) {
+            throw new IllegalArgumentException("Truncated map geometry");
+        }
+        int[] ringOffsets = new int[ringCount + 1];
+        buffer.asIntBuffer().get(ringOffsets);
+        buffer.position(buffer.position() + ringOffsets.length * 4);
+        float[] coordinates = new float[pointCount * 2];
+        if (!intCoordinates) {
+            buffer.asFloatBuffer().get(coordinates);
+        } else {
+            // 绝对位置读取，不逐个移动position
+            ShortBuffer shorts = buffer.asShortBuffer();
+            for (int i = 0; i < coordinates.length; i += 2) {
+                coordinates[i] = left + (shorts.get(i) & 0xFFFF) * step;
+                coordinates[i + 1] = top + (shorts.get(i + 1) & 0xFFFF) * step;
+            }
+        }
+        return new MapGeometry(coordinates, ringOffsets, ringCount, flags & ~FLAG_INT_COORDINATES,
+                left, top, right, bottom);
+    }
+
+    /**
+     * txt等边界文件编译后的asset名：同名，后缀替换为.msk
+     */
+    public static String assetName(String source) {
+        int dot = source.lastIndexOf('.');
+        int slash = source.lastIndexOf('/');
+        return (dot > slash ? source.substring(0, dot) : source) + EXTENSION;
+    }
+
+    /**
+     * 矢量xml中某个path编译后的asset名，如chinahigh/guangxi_zhuang.msk
+     *
+     * @param vectorName 矢量xml的资源名，如chinahigh
+     * @param id         path的id，如Guangxi Zhuang
+     */
+    public static String vectorAssetName(String vectorName, String id) {
+        StringBuilder name = new StringBuilder(vectorName.length() + id.length() + EXTENSION.length() + 1);
+        name.append(vectorName).append('/');
+        String lower = id.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            name.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+        }
+        return name.append(EXTENSION).toString();
+    }
+}
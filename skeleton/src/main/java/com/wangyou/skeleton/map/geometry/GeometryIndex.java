@@ -0,0 +1,378 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.util.Arrays;
+
+/**
+ * 边界的均匀网格索引，用于判断点在哪个区块内。
+ * 每个格子记录经过它的边，以及格子中的参考点在哪些区块内。查询时只需要判断参考点到查询点的线段
+ * 与该格子中的边相交了几次，与边界的点数无关。
+ * 参考点在格子中心的水平线上，并且离开格子中的所有边，格子中心恰好在边或顶点上时两种判断方法的结果也一致
+ */
+public final class GeometryIndex {
+    // 平均每个格子的边数
+    private static final int EDGES_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_SIDE = 512;
+    // 参考点的候选位置：把格子宽度分为REFERENCE_STEPS份，从中心向两侧尝试
+    private static final int REFERENCE_STEPS = 16;
+
+    private final MapGeometry geometry;
+    private final int columns;
+    private final int rows;
+    private final float left;
+    private final float top;
+    private final float cellWidth;
+    private final float cellHeight;
+    // 格子i的参考点为(referenceX[i], 格子中心的y)
+    private final float[] referenceX;
+    // 格子i中的边为cellEdges[cellEdgeOffsets[i]..cellEdgeOffsets[i+1])，边用起点的序号表示
+    private final int[] cellEdgeOffsets;
+    private final int[] cellEdges;
+    // 格子i的参考点所在的区块为cellRings[cellRingOffsets[i]..cellRingOffsets[i+1])
+    private final int[] cellRingOffsets;
+    private final int[] cellRings;
+    // 查询时每个区块的相交次数，复用
+    private final int[] crossings;
+
+    private GeometryIndex(MapGeometry geometry, int columns, int rows, float cellWidth, float cellHeight,
+                          float[] referenceX, int[] cellEdgeOffsets, int[] cellEdges,
+                          int[] cellRingOffsets, int[] cellRings) {
+        this.geometry = geometry;
+        this.columns = columns;
+        this.rows = rows;
+        this.left = geometry.getLeft();
+        this.top = geometry.getTop();
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.referenceX = referenceX;
+        this.cellEdgeOffsets = cellEdgeOffsets;
+        this.cellEdges = cellEdges;
+        this.cellRingOffsets = cellRingOffsets;
+        this.cellRings = cellRings;
+        this.crossings = new int[geometry.getRingCount()];
+    }
+
+    public static GeometryIndex build(MapGeometry geometry) {
+        float width = geometry.getWidth();
+        float height = geometry.getHeight();
+        int cells = Math.max(1, geometry.getPointCount() / EDGES_PER_CELL);
+        // 格子接近正方形
+        double side = width > 0 && height > 0 ? Math.sqrt((double) width * height / cells) : 0;
+        int columns = side > 0 ? clamp((int) Math.ceil(width / side)) : 1;
+        int rows = side > 0 ? clamp((int) Math.ceil(height / side)) : 1;
+        float cellWidth = width > 0 ? width / columns : 1;
+        float cellHeight = height > 0 ? height / rows : 1;
+        float left = geometry.getLeft();
+        float top = geometry.getTop();
+
+        // 两遍：先统计每个格子的边数，再填入
+        int[] cellEdgeOffsets = new int[columns * rows + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            int[] cellEdges = pass == 0 ? null : new int[cellEdgeOffsets[columns * rows]];
+            int[] fill = pass == 0 ? null : Arrays.copyOf(cellEdgeOffsets, columns * rows);
+            for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+                int start = geometry.getRingStart(ring);
+                int end = geometry.getRingEnd(ring);
+                for (int i = start; i < end; i++) {
+                    int next = i + 1 < end ? i + 1 : start;
+                    int column0 = column(geometry.getX(i), left, cellWidth, columns);
+                    int column1 = column(geometry.getX(next), left, cellWidth, columns);
+                    int row0 = column(geometry.getY(i), top, cellHeight, rows);
+                    int row1 = column(geometry.getY(next), top, cellHeight, rows);
+                    // 边的外接矩形经过的格子，边一般很短，只覆盖一两个格子
+                    for (int row = Math.min(row0, row1); row <= Math.max(row0, row1); row++) {
+                        for (int column = Math.min(column0, column1); column <= Math.max(column0, column1); column++) {
+                            int cell = row * columns + column;
+                            if (pass == 0) {
+                                cellEdgeOffsets[cell + 1]++;
+                            } else {
+                                cellEdges[fill[cell]++] = i;
+                            }
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int cell = 0; cell < columns * rows; cell++) {
+                    cellEdgeOffsets[cell + 1] += cellEdgeOffsets[cell];
+                }
+            } else {
+                float[] referenceX = referenceX(geometry, columns, rows, cellWidth, cellHeight,
+                        cellEdgeOffsets, cellEdges);
+                int[] cellRingOffsets = new int[columns * rows + 1];
+                int[] cellRings = referenceRings(geometry, columns, rows, cellHeight, referenceX, cellRingOffsets);
+                return new GeometryIndex(geometry, columns, rows, cellWidth, cellHeight,
+                        referenceX, cellEdgeOffsets, cellEdges, cellRingOffsets, cellRings);
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * 在格子中心的水平线上为每个格子选一个离开格子中所有边的参考点。
+     * 参考点恰好在边上时，扫描和线段相交的判断对它属于哪一侧的约定不同，整个格子的结果都会反过来
+     */
+    private static float[] referenceX(MapGeometry geometry, int columns, int rows, float cellWidth, float cellHeight,
+                                      int[] cellEdgeOffsets, int[] cellEdges) {
+        float left = geometry.getLeft();
+        float top = geometry.getTop();
+        // 与边的最小距离：远大于float的舍入误差，同时不影响在格子内找到位置
+        float magnitude = Math.max(Math.max(Math.abs(left), Math.abs(geometry.getRight())),
+                Math.max(Math.abs(top), Math.abs(geometry.getBottom())));
+        double margin = Math.max(Math.min(cellWidth, cellHeight) / (REFERENCE_STEPS * 16.0),
+                Math.ulp(magnitude) * 16.0);
+        float[] referenceX = new float[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            float y = centerY(top, row, cellHeight);
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                float best = left + (column + 0.5f) * cellWidth;
+                double bestClearance = -1;
+                // 依次尝试中心、中心左右各一步、各两步……
+                for (int k = 0; k < REFERENCE_STEPS - 1 && bestClearance < margin; k++) {
+                    int step = REFERENCE_STEPS / 2 + ((k & 1) == 0 ? k / 2 : -(k + 1) / 2);
+                    float x = left + (column + (float) step / REFERENCE_STEPS) * cellWidth;
+                    double clearance = clearance(geometry, cellEdges, cellEdgeOffsets[cell],
+                            cellEdgeOffsets[cell + 1], x, y);
+                    if (clearance > bestClearance) {
+                        bestClearance = clearance;
+                        best = x;
+                    }
+                }
+                referenceX[cell] = best;
+            }
+        }
+        return referenceX;
+    }
+
+    /**
+     * 点(x,y)与cellEdges[from..to)中的边的最小距离
+     */
+    private static double clearance(MapGeometry geometry, int[] cellEdges, int from, int to, float x, float y) {
+        double min = Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            int edge = cellEdges[i];
+            int next = nextPoint(geometry, edge);
+            double x1 = geometry.getX(edge);
+            double y1 = geometry.getY(edge);
+            double dx = geometry.getX(next) - x1;
+            double dy = geometry.getY(next) - y1;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared > 0 ? ((x - x1) * dx + (y - y1) * dy) / lengthSquared : 0;
+            t = Math.max(0, Math.min(1, t));
+            min = Math.min(min, Math.hypot(x - (x1 + t * dx), y - (y1 + t * dy)));
+        }
+        return min;
+    }
+
+    /**
+     * 逐行扫描格子中心所在的水平线，计算每个格子的参考点在哪些区块内
+     */
+    private static int[] referenceRings(MapGeometry geometry, int columns, int rows, float cellHeight,
+                                        float[] referenceX, int[] cellRingOffsets) {
+        float top = geometry.getTop();
+        // 每行与边的交点：x和区块，按行分组
+        int[] rowCounts = new int[rows + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            double[] crossX = pass == 0 ? null : new double[rowCounts[rows]];
+            int[] crossRing = pass == 0 ? null : new int[rowCounts[rows]];
+            int[] fill = pass == 0 ? null : Arrays.copyOf(rowCounts, rows);
+            for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+                int start = geometry.getRingStart(ring);
+                int end = geometry.getRingEnd(ring);
+                for (int i = start; i < end; i++) {
+                    int next = i + 1 < end ? i + 1 : start;
+                    float x1 = geometry.getX(i);
+                    float y1 = geometry.getY(i);
+                    float x2 = geometry.getX(next);
+                    float y2 = geometry.getY(next);
+                    // 中心线 y = top + (row + 0.5) * cellHeight，半开区间避免经过顶点时重复计数
+                    int firstRow = (int) Math.ceil((Math.min(y1, y2) - top) / cellHeight - 0.5f);
+                    int lastRow = (int) Math.ceil((Math.max(y1, y2) - top) / cellHeight - 0.5f) - 1;
+                    for (int row = Math.max(firstRow, 0); row <= Math.min(lastRow, rows - 1); row++) {
+                        float y = centerY(top, row, cellHeight);
+                        if ((y1 > y) == (y2 > y)) {
+                            continue;
+                        }
+                        if (pass == 0) {
+                            rowCounts[row + 1]++;
+                        } else {
+                            int index = fill[row]++;
+                            crossX[index] = x1 + ((double) y - y1) / ((double) y2 - y1) * ((double) x2 - x1);
+                            crossRing[index] = ring;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int row = 0; row < rows; row++) {
+                    rowCounts[row + 1] += rowCounts[row];
+                }
+                continue;
+            }
+            int[] cellRings = new int[16];
+            int size = 0;
+            // 当前在哪些区块内，区块个数一般很少
+            int[] inside = new int[8];
+            int insideCount = 0;
+            long[] sorted = new long[0];
+            for (int row = 0; row < rows; row++) {
+                int from = rowCounts[row];
+                int to = rowCounts[row + 1];
+                // 按x排序：高32位为可比较的float，低32位为交点序号，float相等的交点顺序不影响结果
+                if (sorted.length < to - from) {
+                    sorted = new long[to - from];
+                }
+                for (int i = from; i < to; i++) {
+                    sorted[i - from] = ((long) sortableBits((float) crossX[i]) << 32) | (i & 0xFFFFFFFFL);
+                }
+                Arrays.sort(sorted, 0, to - from);
+                insideCount = 0;
+                int cross = 0;
+                for (int column = 0; column < columns; column++) {
+                    float x = referenceX[row * columns + column];
+                    while (cross < to - from && crossX[(int) sorted[cross]] < x) {
+                        int ring = crossRing[(int) sorted[cross++]];
+                        // 切换是否在区块内
+                        int found = -1;
+                        for (int k = 0; k < insideCount; k++) {
+                            if (inside[k] == ring) {
+                                found = k;
+                                break;
+                            }
+                        }
+                        if (found != -1) {
+                            inside[found] = inside[--insideCount];
+                        } else {
+                            if (insideCount == inside.length) {
+                                inside = Arrays.copyOf(inside, insideCount * 2);
+                            }
+                            inside[insideCount++] = ring;
+                        }
+                    }
+                    if (size + insideCount > cellRings.length) {
+                        cellRings = Arrays.copyOf(cellRings, Math.max(cellRings.length * 2, size + insideCount));
+                    }
+                    System.arraycopy(inside, 0, cellRings, size, insideCount);
+                    size += insideCount;
+                    cellRingOffsets[row * columns + column + 1] = size;
+                }
+            }
+            return Arrays.copyOf(cellRings, size);
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * 查找包含该点的区块，按even-odd规则，多个区块重叠（如洞）时返回序号最大的区块
+     *
+     * @return 区块序号，不在任何区块内时返回-1
+     */
+    public synchronized int findRing(float x, float y) {
+        if (!(x >= geometry.getLeft() && x <= geometry.getRight() && y >= geometry.getTop() && y <= geometry.getBottom())) {
+            return -1;
+        }
+        int column = column(x, left, cellWidth, columns);
+        int row = column(y, top, cellHeight, rows);
+        int cell = row * columns + column;
+        float referenceX = this.referenceX[cell];
+        float referenceY = centerY(top, row, cellHeight);
+        // 参考点到查询点的线段只在这个格子内，只有这个格子中的边可能与它相交
+        for (int i = cellEdgeOffsets[cell]; i < cellEdgeOffsets[cell + 1]; i++) {
+            int edge = cellEdges[i];
+            int ring = ringOf(geometry, edge);
+            int next = edge + 1 < geometry.getRingEnd(ring) ? edge + 1 : geometry.getRingStart(ring);
+            if (intersects(referenceX, referenceY, x, y, geometry.getX(edge), geometry.getY(edge),
+                    geometry.getX(next), geometry.getY(next))) {
+                crossings[ring] ^= 1;
+            }
+        }
+        for (int i = cellRingOffsets[cell]; i < cellRingOffsets[cell + 1]; i++) {
+            crossings[cellRings[i]] ^= 1;
+        }
+        int count = 0;
+        int result = -1;
+        // 只需要检查可能被修改过的区块，同时清零
+        for (int i = cellEdgeOffsets[cell]; i < cellEdgeOffsets[cell + 1]; i++) {
+            int ring = ringOf(geometry, cellEdges[i]);
+            if (crossings[ring] != 0) {
+                crossings[ring] = 0;
+                count++;
+                result = Math.max(result, ring);
+            }
+        }
+        for (int i = cellRingOffsets[cell]; i < cellRingOffsets[cell + 1]; i++) {
+            int ring = cellRings[i];
+            if (crossings[ring] != 0) {
+                crossings[ring] = 0;
+                count++;
+                result = Math.max(result, ring);
+            }
+        }
+        return count % 2 == 1 ? result : -1;
+    }
+
+    public MapGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * 估算占用的内存，不包括geometry
+     */
+    public int getByteSize() {
+        return (referenceX.length + cellEdgeOffsets.length + cellEdges.length + cellRingOffsets.length
+                + cellRings.length + crossings.length) * 4 + 64;
+    }
+
+    private static float centerY(float top, int row, float cellHeight) {
+        return top + (row + 0.5f) * cellHeight;
+    }
+
+    private static int nextPoint(MapGeometry geometry, int point) {
+        int ring = ringOf(geometry, point);
+        return point + 1 < geometry.getRingEnd(ring) ? point + 1 : geometry.getRingStart(ring);
+    }
+
+    private static int ringOf(MapGeometry geometry, int point) {
+        int low = 0;
+        int high = geometry.getRingCount() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (geometry.getRingStart(middle) <= point) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 线段(x1,y1)-(x2,y2)与(x3,y3)-(x4,y4)是否相交，端点恰好在另一条线段上时按一侧计算，保证经过顶点时只计一次
+     */
+    private static boolean intersects(float x1, float y1, float x2, float y2,
+                                      float x3, float y3, float x4, float y4) {
+        return (cross(x1, y1, x2, y2, x3, y3) > 0) != (cross(x1, y1, x2, y2, x4, y4) > 0)
+                && (cross(x3, y3, x4, y4, x1, y1) > 0) != (cross(x3, y3, x4, y4, x2, y2) > 0);
+    }
+
+    private static double cross(float x1, float y1, float x2, float y2, float x, float y) {
+        return ((double) x2 - x1) * ((double) y - y1) - ((double) y2 - y1) * ((double) x - x1);
+    }
+
+    private static int column(float value, float origin, float size, int count) {
+        int index = (int) ((value - origin) / size);
+        return Math.max(0, Math.min(index, count - 1));
+    }
+
+    private static int clamp(int cells) {
+        return Math.max(1, Math.min(cells, MAX_CELLS_PER_SIDE));
+    }
+
+    /**
+     * float转为按大小排序的int
+     */
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+}
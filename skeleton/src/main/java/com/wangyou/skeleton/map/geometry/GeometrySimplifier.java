@@ -0,0 +1,105 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Douglas–Peucker折线简化，每个区块单独简化，保留首尾点。
+ * 用非递归实现，几十万个点的区块也不会栈溢出
+ */
+public final class GeometrySimplifier {
+    private GeometrySimplifier() {
+    }
+
+    /**
+     * @param tolerance 允许的最大偏差，与坐标同单位
+     * @return 简化后的数据，没有点被去掉时返回原对象
+     */
+    public static MapGeometry simplify(MapGeometry geometry, float tolerance) {
+        int pointCount = geometry.getPointCount();
+        if (tolerance <= 0 || pointCount < 3) {
+            return geometry;
+        }
+        float[] coordinates = geometry.getCoordinates();
+        boolean[] keep = new boolean[geometry.getRingEnd(geometry.getRingCount() - 1)];
+        int[] stack = new int[64];
+        float toleranceSquared = tolerance * tolerance;
+        int kept = 0;
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            int start = geometry.getRingStart(ring);
+            int end = geometry.getRingEnd(ring) - 1;
+            keep[start] = true;
+            keep[end] = true;
+            int top = 0;
+            stack[top++] = start;
+            stack[top++] = end;
+            while (top > 0) {
+                int last = stack[--top];
+                int first = stack[--top];
+                int farthest = -1;
+                float maxDistance = toleranceSquared;
+                for (int i = first + 1; i < last; i++) {
+                    float distance = segmentDistanceSquared(coordinates, i, first, last);
+                    if (distance > maxDistance) {
+                        maxDistance = distance;
+                        farthest = i;
+                    }
+                }
+                if (farthest != -1) {
+                    keep[farthest] = true;
+                    if (top + 4 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = first;
+                    stack[top++] = farthest;
+                    stack[top++] = farthest;
+                    stack[top++] = last;
+                }
+            }
+        }
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        if (kept == pointCount) {
+            return geometry;
+        }
+        GeometryBuilder builder = new GeometryBuilder(kept);
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            builder.beginRing();
+            for (int i = geometry.getRingStart(ring); i < geometry.getRingEnd(ring); i++) {
+                if (keep[i]) {
+                    builder.point(coordinates[i * 2], coordinates[i * 2 + 1]);
+                }
+            }
+            builder.endRing();
+        }
+        return builder.build(geometry.getFlags());
+    }
+
+    /**
+     * 点到线段first-last的距离的平方
+     */
+    private static float segmentDistanceSquared(float[] coordinates, int point, int first, int last) {
+        float x = coordinates[point * 2];
+        float y = coordinates[point * 2 + 1];
+        float x1 = coordinates[first * 2];
+        float y1 = coordinates[first * 2 + 1];
+        float dx = coordinates[last * 2] - x1;
+        float dy = coordinates[last * 2 + 1] - y1;
+        float lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared > 0) {
+            float t = ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+            if (t > 1) {
+                x1 += dx;
+                y1 += dy;
+            } else if (t > 0) {
+                x1 += dx * t;
+                y1 += dy * t;
+            }
+        }
+        dx = x - x1;
+        dy = y - y1;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,39 @@
+package com.wangyou.skeleton.map.geometry;
+
+/**
+ * 流式接收边界数据，一个区块为beginRing、若干point、endRing（成对调用），不需要为每个点创建对象
+ */
+public interface GeometrySink {
+    void beginRing();
+
+    void point(float x, float y);
+
+    void endRing();
+
+    /**
+     * 一次写入一整个区块
+     *
+     * @param coordinates x,y交错排列的坐标
+     * @param offset      第一个点在数组中的位置（float的下标）
+     * @param pointCount  点数
+     */
+    default void ring(float[] coordinates, int offset, int pointCount) {
+        beginRing();
+        for (int i = 0; i < pointCount; i++) {
+            point(coordinates[offset + i * 2], coordinates[offset + i * 2 + 1]);
+        }
+        endRing();
+    }
+
+    /**
+     * 写入打包好的多个区块
+     *
+     * @param coordinates x,y交错排列的坐标
+     * @param ringOffsets 每个区块第一个点的序号，最后一个元素为总点数，长度为区块数+1
+     */
+    default void rings(float[] coordinates, int[] ringOffsets) {
+        for (int i = 0; i + 1 < ringOffsets.length; i++) {
+            ring(coordinates, ringOffsets[i] * 2, ringOffsets[i + 1] - ringOffsets[i]);
+        }
+    }
+}
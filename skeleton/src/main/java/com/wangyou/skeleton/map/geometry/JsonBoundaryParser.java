@@ -0,0 +1,135 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 流式解析JSON格式的边界数据，支持两种格式：
+ * GeoJSON（FeatureCollection、Feature或Geometry）中所有的coordinates，
+ * 高德行政区查询接口返回的JSON中所有的polyline（与txt格式相同）。
+ * 边读边解析，大文件也不需要整体读入内存
+ */
+public final class JsonBoundaryParser {
+    // readCoordinates读到的数组类型
+    private static final int POSITION = 0;
+    private static final int RING = 1;
+    private static final int OTHER = 2;
+
+    private final JsonTokenizer tokenizer;
+    private final GeometrySink sink;
+    // 最近读到的一个点
+    private float x;
+    private float y;
+
+    private JsonBoundaryParser(JsonTokenizer tokenizer, GeometrySink sink) {
+        this.tokenizer = tokenizer;
+        this.sink = sink;
+    }
+
+    /**
+     * 按文件名判断是否为JSON格式：.json或.geojson
+     */
+    public static boolean isJsonFile(String name) {
+        return name.endsWith(".json") || name.endsWith(".geojson");
+    }
+
+    /**
+     * 解析并反转纬度，与txt格式的结果一致
+     */
+    public static MapGeometry parse(InputStream inputStream) throws IOException {
+        GeometryBuilder builder = new GeometryBuilder();
+        parse(inputStream, builder);
+        if (builder.getPointCount() == 0) {
+            throw new IOException("No coordinates or polyline found");
+        }
+        builder.flipLatitude();
+        return builder.build(MapGeometry.FLAG_LATITUDE_FLIPPED);
+    }
+
+    /**
+     * 经纬度原样写入sink，不反转纬度
+     */
+    public static void parse(InputStream inputStream, GeometrySink sink) throws IOException {
+        JsonBoundaryParser parser = new JsonBoundaryParser(new JsonTokenizer(inputStream), sink);
+        parser.readValue();
+    }
+
+    private void readValue() throws IOException {
+        switch (tokenizer.peek()) {
+            case JsonTokenizer.BEGIN_OBJECT:
+                readObject();
+                break;
+            case JsonTokenizer.BEGIN_ARRAY:
+                tokenizer.consume(JsonTokenizer.BEGIN_ARRAY);
+                while (tokenizer.peek() != JsonTokenizer.END_ARRAY) {
+                    readValue();
+                }
+                tokenizer.consume(JsonTokenizer.END_ARRAY);
+                break;
+            default:
+                tokenizer.skipValue();
+                break;
+        }
+    }
+
+    private void readObject() throws IOException {
+        tokenizer.consume(JsonTokenizer.BEGIN_OBJECT);
+        while (tokenizer.peek() != JsonTokenizer.END_OBJECT) {
+            String name = tokenizer.nextString();
+            int token = tokenizer.peek();
+            if ("coordinates".equals(name) && token == JsonTokenizer.BEGIN_ARRAY) {
+                readCoordinates();
+            } else if ("polyline".equals(name) && token == JsonTokenizer.STRING) {
+                BoundaryParser parser = new BoundaryParser(sink);
+                tokenizer.nextString(parser);
+                parser.finish();
+            } else {
+                readValue();
+            }
+        }
+        tokenizer.consume(JsonTokenizer.END_OBJECT);
+    }
+
+    /**
+     * GeoJSON的坐标是嵌套的数组，元素为数字的数组是一个点，元素为点的数组是一个区块，
+     * 更外层（Polygon、MultiPolygon）只是区块的集合
+     *
+     * @return POSITION：读到一个点，保存在x、y中；RING：读到一个区块，已经写入sink；OTHER：其他
+     */
+    private int readCoordinates() throws IOException {
+        tokenizer.consume(JsonTokenizer.BEGIN_ARRAY);
+        if (tokenizer.peek() == JsonTokenizer.NUMBER) {
+            x = tokenizer.nextFloat();
+            if (tokenizer.peek() != JsonTokenizer.NUMBER) {
+                throw new IOException("Invalid coordinates: missing latitude");
+            }
+            y = tokenizer.nextFloat();
+            // 忽略海拔等多余的值
+            while (tokenizer.peek() != JsonTokenizer.END_ARRAY) {
+                tokenizer.skipValue();
+            }
+            tokenizer.consume(JsonTokenizer.END_ARRAY);
+            return POSITION;
+        }
+        boolean ring = false;
+        while (tokenizer.peek() != JsonTokenizer.END_ARRAY) {
+            if (tokenizer.peek() != JsonTokenizer.BEGIN_ARRAY) {
+                tokenizer.skipValue();
+                continue;
+            }
+            if (readCoordinates() == POSITION) {
+                if (!ring) {
+                    sink.beginRing();
+                    ring = true;
+                }
+                sink.point(x, y);
+            }
+        }
+        tokenizer.consume(JsonTokenizer.END_ARRAY);
+        if (ring) {
+            sink.endRing();
+            return RING;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,253 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 最小的流式JSON读取，只保留解析边界需要的部分。
+ * 不依赖android.util.JsonReader，构建时的编译任务也可以使用。
+ * 逗号和冒号只作为分隔符跳过，不检查JSON是否严格合法
+ */
+final class JsonTokenizer {
+    static final int BEGIN_OBJECT = 1;
+    static final int END_OBJECT = 2;
+    static final int BEGIN_ARRAY = 3;
+    static final int END_ARRAY = 4;
+    static final int STRING = 5;
+    static final int NUMBER = 6;
+    // true、false、null
+    static final int LITERAL = 7;
+    static final int END_DOCUMENT = 8;
+
+    private static final int BUFFER_SIZE = 8192;
+    // 数字最长的字符数，超过时认为数据有误
+    private static final int MAX_NUMBER_LENGTH = 64;
+
+    private final InputStream inputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private final byte[] number = new byte[MAX_NUMBER_LENGTH];
+    // 对象的key一般很短，复用
+    private byte[] name = new byte[64];
+
+    JsonTokenizer(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * 下一个值的类型，不消耗
+     */
+    int peek() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return END_DOCUMENT;
+            }
+            byte b = buffer[position];
+            switch (b) {
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                case ',':
+                case ':':
+                    position++;
+                    continue;
+                case '{':
+                    return BEGIN_OBJECT;
+                case '}':
+                    return END_OBJECT;
+                case '[':
+                    return BEGIN_ARRAY;
+                case ']':
+                    return END_ARRAY;
+                case '"':
+                    return STRING;
+                case 't':
+                case 'f':
+                case 'n':
+                    return LITERAL;
+                default:
+                    return NUMBER;
+            }
+        }
+    }
+
+    /**
+     * 消耗{ } [ ]
+     */
+    void consume(int expected) throws IOException {
+        int token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        position++;
+    }
+
+    float nextFloat() throws IOException {
+        if (peek() != NUMBER) {
+            throw syntaxError("Expected a number");
+        }
+        int length = 0;
+        while (position < limit || fill()) {
+            byte b = buffer[position];
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                if (length == MAX_NUMBER_LENGTH) {
+                    throw syntaxError("Number too long");
+                }
+                number[length++] = b;
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (length == 0) {
+            throw syntaxError("Unexpected character " + (char) buffer[position]);
+        }
+        return FloatParser.parseFloat(number, 0, length);
+    }
+
+    /**
+     * 读取字符串，用于对象的key等短字符串
+     */
+    String nextString() throws IOException {
+        consume(STRING);
+        int length = 0;
+        while (true) {
+            int b = nextByte();
+            if (b == '"') {
+                return new String(name, 0, length, StandardCharsets.UTF_8);
+            }
+            if (b == '\\') {
+                b = unescape();
+            }
+            if (length == name.length) {
+                byte[] grown = new byte[length * 2];
+                System.arraycopy(name, 0, grown, 0, length);
+                name = grown;
+            }
+            name[length++] = (byte) b;
+        }
+    }
+
+    /**
+     * 把字符串的内容分段交给BoundaryParser，不需要把整个字符串读入内存。
+     * 边界数据只有ASCII字符，转义只处理单字节的情况
+     */
+    void nextString(BoundaryParser parser) throws IOException {
+        consume(STRING);
+        byte[] escaped = new byte[1];
+        while (position < limit || fill()) {
+            int start = position;
+            while (position < limit && buffer[position] != '"' && buffer[position] != '\\') {
+                position++;
+            }
+            if (position > start) {
+                parser.feed(buffer, start, position - start);
+            }
+            if (position == limit) {
+                continue;
+            }
+            if (buffer[position++] == '"') {
+                return;
+            }
+            escaped[0] = (byte) unescape();
+            parser.feed(escaped, 0, 1);
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * 跳过下一个值，包括嵌套的对象和数组
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            int token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    position++;
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    position++;
+                    depth--;
+                    break;
+                case STRING:
+                    skipString();
+                    break;
+                case NUMBER:
+                    nextFloat();
+                    break;
+                case LITERAL:
+                    while ((position < limit || fill()) && buffer[position] >= 'a' && buffer[position] <= 'z') {
+                        position++;
+                    }
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString() throws IOException {
+        consume(STRING);
+        while (true) {
+            int b = nextByte();
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                unescape();
+            }
+        }
+    }
+
+    /**
+     * 已经读过\，返回转义后的字节，\\u只支持ASCII
+     */
+    private int unescape() throws IOException {
+        int b = nextByte();
+        switch (b) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    value = value * 16 + Character.digit(nextByte(), 16);
+                }
+                return value < 0x80 ? value : '?';
+            default:
+                return b;
+        }
+    }
+
+    private int nextByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw syntaxError("Unexpected end of document");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int read = inputStream.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Invalid JSON: " + message);
+    }
+}
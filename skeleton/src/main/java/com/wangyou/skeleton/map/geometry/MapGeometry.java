@@ -0,0 +1,162 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析后的行政区边界数据，不可变。
+ * 所有区块的坐标按x,y交错存放在同一个float数组中，ringOffsets记录每个区块第一个点的下标，
+ * 第i个区块的点为[ringOffsets[i], ringOffsets[i + 1])，避免每个点都创建一个float[2]对象
+ */
+public final class MapGeometry {
+    // 纬度已经做过上下反转（经纬度数据），省级svg路径数据不需要反转
+    public static final int FLAG_LATITUDE_FLIPPED = 1;
+
+    private final float[] coordinates;
+    private final int[] ringOffsets;
+    private final int ringCount;
+    private final int flags;
+
+    private final float left;
+    private final float top;
+    private final float right;
+    private final float bottom;
+
+    /**
+     * @param coordinates x,y交错的坐标，长度至少为点数*2
+     * @param ringOffsets 每个区块的起始点下标，长度为区块数+1，最后一个值为总点数
+     * @param ringCount   区块数
+     * @param flags       FLAG_*
+     */
+    public MapGeometry(float[] coordinates, int[] ringOffsets, int ringCount, int flags) {
+        if (ringOffsets.length < ringCount + 1 || coordinates.length < ringOffsets[ringCount] * 2) {
+            throw new IllegalArgumentException("ringOffsets does not match coordinates");
+        }
+        this.coordinates = coordinates;
+        this.ringOffsets = ringOffsets;
+        this.ringCount = ringCount;
+        this.flags = flags;
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        int end = ringOffsets[ringCount] * 2;
+        for (int i = ringOffsets[0] * 2; i < end; i += 2) {
+            minX = Math.min(minX, coordinates[i]);
+            maxX = Math.max(maxX, coordinates[i]);
+            minY = Math.min(minY, coordinates[i + 1]);
+            maxY = Math.max(maxY, coordinates[i + 1]);
+        }
+        if (end == ringOffsets[0] * 2) {
+            minX = minY = maxX = maxY = 0;
+        }
+        left = minX;
+        top = minY;
+        right = maxX;
+        bottom = maxY;
+    }
+
+    /**
+     * 边界已知时（如二进制文件头中保存了边界）使用，不再遍历所有点
+     */
+    public MapGeometry(float[] coordinates, int[] ringOffsets, int ringCount, int flags,
+                       float left, float top, float right, float bottom) {
+        if (ringOffsets.length < ringCount + 1 || coordinates.length < ringOffsets[ringCount] * 2) {
+            throw new IllegalArgumentException("ringOffsets does not match coordinates");
+        }
+        this.coordinates = coordinates;
+        this.ringOffsets = ringOffsets;
+        this.ringCount = ringCount;
+        this.flags = flags;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int getRingCount() {
+        return ringCount;
+    }
+
+    public int getPointCount() {
+        return ringOffsets[ringCount] - ringOffsets[0];
+    }
+
+    /**
+     * 第ring个区块的第一个点的下标
+     */
+    public int getRingStart(int ring) {
+        return ringOffsets[ring];
+    }
+
+    /**
+     * 第ring个区块最后一个点的下一个下标
+     */
+    public int getRingEnd(int ring) {
+        return ringOffsets[ring + 1];
+    }
+
+    public float getX(int point) {
+        return coordinates[point * 2];
+    }
+
+    public float getY(int point) {
+        return coordinates[point * 2 + 1];
+    }
+
+    /**
+     * 直接访问坐标数组，只读，不能修改
+     */
+    public float[] getCoordinates() {
+        return coordinates;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isLatitudeFlipped() {
+        return (flags & FLAG_LATITUDE_FLIPPED) != 0;
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getRight() {
+        return right;
+    }
+
+    public float getBottom() {
+        return bottom;
+    }
+
+    public float getWidth() {
+        return right - left;
+    }
+
+    public float getHeight() {
+        return bottom - top;
+    }
+
+    /**
+     * 转换为旧的List<float[][]>格式，兼容MapSkeleton.CreatePath
+     */
+    public List<float[][]> toList() {
+        List<float[][]> pathData = new ArrayList<>(ringCount);
+        for (int i = 0; i < ringCount; i++) {
+            int start = ringOffsets[i];
+            float[][] onePath = new float[ringOffsets[i + 1] - start][2];
+            for (int j = 0; j < onePath.length; j++) {
+                onePath[j][0] = coordinates[(start + j) * 2];
+                onePath[j][1] = coordinates[(start + j) * 2 + 1];
+            }
+            pathData.add(onePath);
+        }
+        return pathData;
+    }
+}
@@ -0,0 +1,179 @@
+package com.wangyou.skeleton.map.geometry;
+
+/**
+ * 解析矢量图中android:pathData的折线部分（M/L/H/V/Z及其相对坐标形式），写入GeometrySink。
+ * 省级地图chinahigh.xml只用到了这些命令，曲线命令不支持
+ */
+public final class PathDataParser {
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final String pathData;
+    private final int length;
+    private final byte[] token = new byte[MAX_TOKEN_LENGTH];
+    private int index;
+
+    private PathDataParser(String pathData) {
+        this.pathData = pathData;
+        this.length = pathData.length();
+    }
+
+    public static MapGeometry parse(String pathData) {
+        GeometryBuilder builder = new GeometryBuilder(pathData.length() / 10);
+        parse(pathData, builder);
+        return builder.build(0);
+    }
+
+    /**
+     * @throws IllegalArgumentException 包含不支持的命令
+     */
+    public static void parse(String pathData, GeometrySink builder) {
+        new PathDataParser(pathData).parseInto(builder);
+    }
+
+    private void parseInto(GeometrySink builder) {
+        float currentX = 0;
+        float currentY = 0;
+        float startX = 0;
+        float startY = 0;
+        boolean hasPoint = false;
+        char command = 0;
+        while (true) {
+            skipSeparators();
+            if (index >= length) {
+                break;
+            }
+            char c = pathData.charAt(index);
+            if (Character.isLetter(c)) {
+                command = c;
+                index++;
+                if (command == 'z' || command == 'Z') {
+                    if (hasPoint) {
+                        // 闭合：回到区块起点
+                        if (currentX != startX || currentY != startY) {
+                            builder.point(startX, startY);
+                        }
+                        builder.endRing();
+                        hasPoint = false;
+                    }
+                    currentX = startX;
+                    currentY = startY;
+                }
+                continue;
+            }
+            switch (command) {
+                case 'M':
+                case 'm': {
+                    float x = nextFloat();
+                    float y = nextFloat();
+                    if (command == 'm') {
+                        x += currentX;
+                        y += currentY;
+                    }
+                    if (hasPoint) {
+                        builder.endRing();
+                    }
+                    builder.beginRing();
+                    builder.point(x, y);
+                    hasPoint = true;
+                    currentX = startX = x;
+                    currentY = startY = y;
+                    // M后面连续的坐标按L处理
+                    command = command == 'm' ? 'l' : 'L';
+                    break;
+                }
+                case 'L':
+                case 'l': {
+                    float x = nextFloat();
+                    float y = nextFloat();
+                    if (command == 'l') {
+                        x += currentX;
+                        y += currentY;
+                    }
+                    hasPoint = lineTo(builder, hasPoint, currentX, currentY, x, y);
+                    currentX = x;
+                    currentY = y;
+                    break;
+                }
+                case 'H':
+                case 'h': {
+                    float x = nextFloat();
+                    if (command == 'h') {
+                        x += currentX;
+                    }
+                    hasPoint = lineTo(builder, hasPoint, currentX, currentY, x, currentY);
+                    currentX = x;
+                    break;
+                }
+                case 'V':
+                case 'v': {
+                    float y = nextFloat();
+                    if (command == 'v') {
+                        y += currentY;
+                    }
+                    hasPoint = lineTo(builder, hasPoint, currentX, currentY, currentX, y);
+                    currentY = y;
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported path command: " + command);
+            }
+        }
+        if (hasPoint) {
+            builder.endRing();
+        }
+    }
+
+    private static boolean lineTo(GeometrySink builder, boolean hasPoint, float fromX, float fromY, float x, float y) {
+        if (!hasPoint) {
+            // z之后直接画线，从上一个区块的起点开始新的区块
+            builder.beginRing();
+            builder.point(fromX, fromY);
+        }
+        builder.point(x, y);
+        return true;
+    }
+
+    private void skipSeparators() {
+        while (index < length) {
+            char c = pathData.charAt(index);
+            if (c != ',' && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * 读取下一个数字，数字之间可以没有分隔符，如"1.5-2.5"或".5.5"
+     */
+    private float nextFloat() {
+        skipSeparators();
+        int tokenLength = 0;
+        boolean dot = false;
+        boolean exponent = false;
+        while (index < length && tokenLength < MAX_TOKEN_LENGTH) {
+            char c = pathData.charAt(index);
+            if (c == '-' || c == '+') {
+                char previous = tokenLength == 0 ? 0 : (char) token[tokenLength - 1];
+                if (tokenLength > 0 && previous != 'e' && previous != 'E') {
+                    break;
+                }
+            } else if (c == '.') {
+                if (dot || exponent) {
+                    break;
+                }
+                dot = true;
+            } else if (c == 'e' || c == 'E') {
+                exponent = true;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            token[tokenLength++] = (byte) c;
+            index++;
+        }
+        if (tokenLength == 0) {
+            throw new IllegalArgumentException("Missing number at " + index);
+        }
+        return FloatParser.parseFloat(token, 0, tokenLength);
+    }
+}
@@ -0,0 +1,148 @@
+package com.wangyou.skeleton.map.geometry;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的边界数据，用于长期缓存大量区域。
+ * 坐标相对边界左上角按step量化为整数，每个区块内保存与上一个点的差值，
+ * 差值经zigzag后按varint写入byte数组，一般每个点2~4个字节，float坐标为8个字节，再加上路径中的9个字节。
+ * 量化后重复的相邻点会被去掉，区块数不变
+ */
+public final class QuantizedGeometry {
+    // 量化后坐标的最大值，保证差值不会溢出int
+    private static final int MAX_UNITS = 1 << 30;
+
+    private final byte[] data;
+    // 每个区块第一个点的序号，长度为区块数+1
+    private final int[] ringOffsets;
+    private final int flags;
+    private final float left;
+    private final float top;
+    private final float step;
+
+    private QuantizedGeometry(byte[] data, int[] ringOffsets, int flags, float left, float top, float step) {
+        this.data = data;
+        this.ringOffsets = ringOffsets;
+        this.flags = flags;
+        this.left = left;
+        this.top = top;
+        this.step = step;
+    }
+
+    /**
+     * @param maxError 允许的最大偏差，与坐标同单位，量化步长为它的两倍
+     */
+    public static QuantizedGeometry encode(MapGeometry geometry, float maxError) {
+        if (!(maxError > 0)) {
+            throw new IllegalArgumentException("maxError must be positive: " + maxError);
+        }
+        float left = geometry.getLeft();
+        float top = geometry.getTop();
+        float step = Math.max(maxError * 2, Math.max(geometry.getWidth(), geometry.getHeight()) / MAX_UNITS);
+        int ringCount = geometry.getRingCount();
+        int[] ringOffsets = new int[ringCount + 1];
+        byte[] data = new byte[Math.max(16, geometry.getPointCount() * 4)];
+        int size = 0;
+        int pointCount = 0;
+        for (int ring = 0; ring < ringCount; ring++) {
+            int lastX = 0;
+            int lastY = 0;
+            int end = geometry.getRingEnd(ring);
+            for (int point = geometry.getRingStart(ring); point < end; point++) {
+                int x = Math.round((geometry.getX(point) - left) / step);
+                int y = Math.round((geometry.getY(point) - top) / step);
+                if (pointCount > ringOffsets[ring] && x == lastX && y == lastY) {
+                    continue;
+                }
+                // 两个varint最多10个字节
+                if (size + 10 > data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                size = writeVarint(data, size, x - lastX);
+                size = writeVarint(data, size, y - lastY);
+                lastX = x;
+                lastY = y;
+                pointCount++;
+            }
+            ringOffsets[ring + 1] = pointCount;
+        }
+        return new QuantizedGeometry(Arrays.copyOf(data, size), ringOffsets, geometry.getFlags(), left, top, step);
+    }
+
+    private static int writeVarint(byte[] data, int position, int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            data[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        data[position++] = (byte) zigzag;
+        return position;
+    }
+
+    /**
+     * 解码后写入sink，每个区块都是成对的beginRing、endRing
+     */
+    public void writeTo(GeometrySink sink) {
+        int position = 0;
+        for (int ring = 0; ring < getRingCount(); ring++) {
+            int x = 0;
+            int y = 0;
+            sink.beginRing();
+            for (int point = ringOffsets[ring]; point < ringOffsets[ring + 1]; point++) {
+                for (int axis = 0; axis < 2; axis++) {
+                    int zigzag = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = data[position++];
+                        zigzag |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    int delta = (zigzag >>> 1) ^ -(zigzag & 1);
+                    if (axis == 0) {
+                        x += delta;
+                    } else {
+                        y += delta;
+                    }
+                }
+                sink.point(left + x * step, top + y * step);
+            }
+            sink.endRing();
+        }
+    }
+
+    /**
+     * 解码为MapGeometry，每次调用都会生成新的数组
+     */
+    public MapGeometry decode() {
+        GeometryBuilder builder = new GeometryBuilder(getPointCount());
+        writeTo(builder);
+        return builder.build(flags);
+    }
+
+    public int getRingCount() {
+        return ringOffsets.length - 1;
+    }
+
+    public int getPointCount() {
+        return ringOffsets[ringOffsets.length - 1];
+    }
+
+    /**
+     * 解码后与原坐标的最大偏差（每个方向），不含float本身的舍入误差
+     */
+    public float getMaxError() {
+        return step / 2;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * 占用的内存（估算值）
+     */
+    public int getByteSize() {
+        return data.length + ringOffsets.length * 4 + 64;
+    }
+}
@@ -0,0 +1,87 @@
+package com.wangyou.skeleton.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 按MapSkeleton的调用顺序：attach、setter再次调用startAnimation、detach、重新attach
+ */
+public class ClockRegistrationTest {
+    private final FakeTarget target = new FakeTarget();
+    private final ClockRegistration registration = new ClockRegistration(target);
+
+    @Test
+    public void registerAgainKeepsOneListener() {
+        registration.register();
+        // setDuration、setAnimationType、setAnimationMinAlpha
+        registration.register();
+        registration.register();
+        registration.register();
+        assertTrue(registration.isRegistered());
+        assertEquals(1, target.listeners);
+        assertEquals(1, target.registerCount);
+        assertEquals(3, target.frameRequests);
+    }
+
+    @Test
+    public void unregisterRemovesAllListeners() {
+        registration.register();
+        registration.register();
+        registration.unregister();
+        assertFalse(registration.isRegistered());
+        assertEquals(0, target.listeners);
+        // 重复移除不会使计数为负
+        registration.unregister();
+        assertEquals(0, target.listeners);
+        assertEquals(1, target.unregisterCount);
+    }
+
+    @Test
+    public void reattachRegistersAgain() {
+        registration.register();
+        registration.unregister();
+        registration.register();
+        registration.register();
+        assertTrue(registration.isRegistered());
+        assertEquals(1, target.listeners);
+        assertEquals(2, target.registerCount);
+        assertEquals(1, target.frameRequests);
+    }
+
+    @Test
+    public void unregisterBeforeRegister() {
+        registration.unregister();
+        assertFalse(registration.isRegistered());
+        assertEquals(0, target.unregisterCount);
+    }
+
+    /**
+     * 记录ViewTreeObserver中的监听数量
+     */
+    private static final class FakeTarget implements ClockRegistration.Target {
+        int listeners;
+        int registerCount;
+        int unregisterCount;
+        int frameRequests;
+
+        @Override
+        public void onRegister() {
+            listeners++;
+            registerCount++;
+        }
+
+        @Override
+        public void onRegisterAgain() {
+            frameRequests++;
+        }
+
+        @Override
+        public void onUnregister() {
+            listeners--;
+            unregisterCount++;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.wangyou.skeleton.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
+
+import com.wangyou.skeleton.map.geometry.MapGeometry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * 包含曲线的省份（loadGeometry返回null，由PathParser生成路径）在两种模式下都只加载一次
+ */
+@RunWith(RobolectricTestRunner.class)
+public class GeometryCacheTest {
+    private static final String PROVINCE = "Curved";
+
+    private final CurveSource source = new CurveSource();
+
+    @Before
+    public void setUp() {
+        GeometryCache.setCompactMode(false);
+        GeometryCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        GeometryCache.setCompactMode(false);
+        GeometryCache.clear();
+    }
+
+    @Test
+    public void curveProvinceIsCached() throws Exception {
+        assertLoadedOnce();
+    }
+
+    @Test
+    public void curveProvinceIsCachedInCompactMode() throws Exception {
+        GeometryCache.setCompactMode(true);
+        assertLoadedOnce();
+        assertSame(GeometryCache.obtain(source, PROVINCE, true, null), GeometryCache.peek(PROVINCE));
+    }
+
+    @Test
+    public void compactModeDoesNotReuseFullEntries() throws Exception {
+        GeometryCache.Entry full = GeometryCache.obtain(source, PROVINCE, true, null);
+        GeometryCache.setCompactMode(true);
+        // 切换时清空缓存，重新加载
+        GeometryCache.Entry compact = GeometryCache.obtain(source, PROVINCE, true, null);
+        assertEquals(2, source.pathLoads);
+        assertNotSame(full, compact);
+    }
+
+    private void assertLoadedOnce() throws Exception {
+        GeometryCache.Stats before = GeometryCache.getStats();
+        GeometryCache.Entry first = GeometryCache.obtain(source, PROVINCE, true, null);
+        GeometryCache.Entry second = GeometryCache.obtain(source, PROVINCE, true, null);
+        GeometryCache.Stats after = GeometryCache.getStats();
+        assertSame(first, second);
+        assertEquals(1, source.pathLoads);
+        assertEquals(1, after.getMissCount() - before.getMissCount());
+        assertEquals(1, after.getHitCount() - before.getHitCount());
+    }
+
+    private static final class CurveSource implements GeometryCache.Source {
+        int pathLoads;
+
+        @Nullable
+        @Override
+        public MapGeometry loadGeometry(String resource, boolean province,
+                                        @Nullable ProgressiveOutline.Listener outline) {
+            return null;
+        }
+
+        @Override
+        public GeometryCache.Entry loadProvincePath(String resource) {
+            pathLoads++;
+            Path path = new Path();
+            path.addCircle(50, 50, 50, Path.Direction.CW);
+            return new GeometryCache.Entry(null, path, new RectF(0, 0, 100, 100), 1024, 0);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.wangyou.skeleton.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 每帧的绘制中不创建对象：从onDraw/draw开始遍历本库中会调用到的方法，检查字节码中没有new、数组、lambda、
+ * 字符串拼接和自动装箱。JVM上无法运行Canvas，这里只检查本库的代码，不检查系统方法内部的分配
+ */
+public class MapSkeletonDrawAllocationTest {
+    private static final String PACKAGE = "com/wangyou/skeleton/map/";
+
+    // 只在属性、大小或边界变化以及第一次绘制时调用，重新创建着色器、静态层、简化路径等，不在每帧中执行
+    private static final Set<String> REBUILD_METHODS = new HashSet<>(Arrays.asList(
+            PACKAGE + "LightBand.updateShader",
+            PACKAGE + "MapSkeleton.updateViewport",
+            PACKAGE + "MapSkeleton.createStaticLayerNode",
+            PACKAGE + "MapSkeleton.createStaticLayerBitmap",
+            PACKAGE + "MapSkeletonDrawable.prepareLod"));
+
+    private final Map<String, ClassMethods> classes = new HashMap<>();
+
+    @Test
+    public void viewOnDraw() throws IOException {
+        assertDrawDoesNotAllocate(PACKAGE + "MapSkeleton.onDraw");
+    }
+
+    @Test
+    public void drawableDraw() throws IOException {
+        assertDrawDoesNotAllocate(PACKAGE + "MapSkeletonDrawable.draw");
+    }
+
+    /**
+     * 检查的范围确实覆盖了背景、文字、亮条和边界的绘制，避免因为调用关系变化而漏掉
+     */
+    @Test
+    public void reachesPainter() throws IOException {
+        Set<String> reached = new HashSet<>();
+        findAllocations(PACKAGE + "MapSkeleton.onDraw", reached);
+        for (String method : new String[]{"drawBackground", "drawLabel", "drawLight", "drawStroke"}) {
+            assertTrue(method, reached.contains(PACKAGE + "SkeletonPainter." + method));
+        }
+        assertTrue(reached.contains(PACKAGE + "LightBand.draw"));
+        assertTrue(reached.contains(PACKAGE + "MapSkeleton.drawStaticLayer"));
+    }
+
+    private void assertDrawDoesNotAllocate(String root) throws IOException {
+        List<String> allocations = findAllocations(root, new HashSet<>());
+        assertEquals("Allocations reachable from " + root, new ArrayList<String>(), allocations);
+    }
+
+    /**
+     * 按方法名遍历，重载的方法一起检查
+     *
+     * @param reached 遍历到的方法
+     * @return 分配的位置：方法名和指令
+     */
+    private List<String> findAllocations(String root, Set<String> reached) throws IOException {
+        List<String> allocations = new ArrayList<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            String method = pending.poll();
+            if (REBUILD_METHODS.contains(method) || !reached.add(method)) {
+                continue;
+            }
+            int dot = method.lastIndexOf('.');
+            ClassMethods methods = load(method.substring(0, dot));
+            if (methods == null) {
+                continue;
+            }
+            for (MethodBody body : methods.get(method.substring(dot + 1))) {
+                for (String allocation : body.allocations) {
+                    allocations.add(method + ": " + allocation);
+                }
+                pending.addAll(body.calls);
+            }
+        }
+        return allocations;
+    }
+
+    /**
+     * @return 不在本库中（系统类）时为null
+     */
+    private ClassMethods load(String className) throws IOException {
+        if (!className.startsWith(PACKAGE)) {
+            return null;
+        }
+        ClassMethods methods = classes.get(className);
+        if (methods == null) {
+            try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(className + ".class")) {
+                assertTrue("Class not found: " + className, inputStream != null);
+                methods = new ClassMethods();
+                new ClassReader(inputStream).accept(methods, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            }
+            classes.put(className, methods);
+        }
+        return methods;
+    }
+
+    private static final class MethodBody {
+        final List<String> allocations = new ArrayList<>();
+        // 调用的本库方法，格式与REBUILD_METHODS相同
+        final List<String> calls = new ArrayList<>();
+    }
+
+    private static final class ClassMethods extends ClassVisitor {
+        private final Map<String, List<MethodBody>> methods = new HashMap<>();
+
+        ClassMethods() {
+            super(Opcodes.ASM9);
+        }
+
+        List<MethodBody> get(String name) {
+            List<MethodBody> bodies = methods.get(name);
+            return bodies != null ? bodies : new ArrayList<>();
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            MethodBody body = new MethodBody();
+            methods.computeIfAbsent(name, key -> new ArrayList<>()).add(body);
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    if (opcode == Opcodes.NEW || opcode == Opcodes.ANEWARRAY) {
+                        body.allocations.add((opcode == Opcodes.NEW ? "new " : "new array ") + type);
+                    }
+                }
+
+                @Override
+                public void visitIntInsn(int opcode, int operand) {
+                    if (opcode == Opcodes.NEWARRAY) {
+                        body.allocations.add("new primitive array");
+                    }
+                }
+
+                @Override
+                public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+                    body.allocations.add("new array " + descriptor);
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                                   Object... bootstrapMethodArguments) {
+                    // lambda、方法引用和字符串拼接
+                    body.allocations.add("invokedynamic " + name);
+                }
+
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+                                            boolean isInterface) {
+                    // 自动装箱，以及String.valueOf(int)等
+                    if ("valueOf".equals(name) && descriptor.matches("\\([ZBCSIJFD]\\)Ljava/lang/\\w+;")) {
+                        body.allocations.add(owner + ".valueOf");
+                    }
+                    body.calls.add(owner + "." + name);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.wangyou.skeleton.map.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BoundaryParser与旧的split解析逐个float比较
+ */
+public class BoundaryParserTest {
+
+    @Test
+    public void liangping() throws IOException {
+        String text;
+        try (InputStream inputStream = getClass().getClassLoader()
+                .getResourceAsStream("china_chongqing_liangping.txt")) {
+            text = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertSameAsSplit(text);
+    }
+
+    @Test
+    public void multipleRings() throws IOException {
+        assertSameAsSplit("106.1,30.2;106.3,30.4;106.5,30.1|107,31;107.5,31.5;107.2,30.9");
+    }
+
+    @Test
+    public void whitespace() throws IOException {
+        assertSameAsSplit(" 106.1 , 30.2 ;\n106.3,30.4\r\n;106.5,\t30.1|107,31;107.5,31.5;107.2,30.9\n");
+    }
+
+    @Test
+    public void trailingSeparators() throws IOException {
+        assertSameAsSplit("1,2;3,4;5,6;");
+        assertSameAsSplit("1,2;3,4;5,6|7,8;9,10;11,12|");
+    }
+
+    @Test
+    public void numberFormats() throws IOException {
+        assertSameAsSplit("-0.5,1e2;123456789.123456789,-3.4028235E38;0.000001,7;+3,.25;"
+                + "106.12345678901234567890,29.999999999999999;1.17549435E-38,0");
+    }
+
+    @Test
+    public void extraFieldsIgnored() throws IOException {
+        assertSameAsSplit("1,2,3;4,5,6;7,8,9");
+    }
+
+    /**
+     * 空的点和区块：旧的解析抛出异常，新的解析跳过，结果与去掉空的部分后相同
+     */
+    @Test
+    public void emptyPointsAndRingsAreSkipped() throws IOException {
+        String[][] cases = {
+                {"1,2;;3,4;5,6", "1,2;3,4;5,6"},
+                {"1,2;3,4;5,6||7,8;9,10;11,12", "1,2;3,4;5,6|7,8;9,10;11,12"},
+                {"|1,2;3,4;5,6", "1,2;3,4;5,6"},
+                {";1,2;3,4;5,6", "1,2;3,4;5,6"},
+        };
+        for (String[] testCase : cases) {
+            assertThrows(testCase[0], RuntimeException.class, () -> splitParse(testCase[0]));
+            assertEquals(testCase[0], toString(splitParse(testCase[1])),
+                    toString(BoundaryParser.parse(stream(testCase[0])).toList()));
+        }
+    }
+
+    @Test
+    public void missingLatitude() {
+        assertThrows(NumberFormatException.class, () -> BoundaryParser.parse(stream("1,2;3;5,6")));
+    }
+
+    private static void assertSameAsSplit(String text) throws IOException {
+        List<float[][]> expected = splitParse(text);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertRingsEqual(expected, BoundaryParser.parse(new ByteArrayInputStream(bytes)).toList());
+        assertRingsEqual(expected, BoundaryParser.parse(ByteBuffer.wrap(bytes)).toList());
+        // 数字跨越多次read
+        assertRingsEqual(expected, BoundaryParser.parse(new ChunkedInputStream(bytes, 3)).toList());
+    }
+
+    static void assertRingsEqual(List<float[][]> expected, List<float[][]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).length, actual.get(i).length);
+            for (int j = 0; j < expected.get(i).length; j++) {
+                // 逐位相同，不允许误差
+                assertArrayEquals("ring " + i + " point " + j, expected.get(i)[j], actual.get(i)[j], 0f);
+            }
+        }
+    }
+
+    private static String toString(List<float[][]> rings) {
+        StringBuilder builder = new StringBuilder();
+        for (float[][] ring : rings) {
+            for (float[] point : ring) {
+                builder.append(point[0]).append(',').append(point[1]).append(';');
+            }
+            builder.append('|');
+        }
+        return builder.toString();
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 旧版MapSkeleton.getPathFromAssets中的解析，原样保留作为对照
+     */
+    static List<float[][]> splitParse(String pathStr) {
+        String[] pathArrayStr = pathStr.split("\\|");
+        List<float[][]> pathData = new ArrayList<>();
+        float max = 0;
+        float min = Float.MAX_VALUE;
+        for (int i = 0; i < pathArrayStr.length; i++) {
+            String[] pathStrArray = pathArrayStr[i].split(";");
+            float[][] pathDataOne = new float[pathStrArray.length][2];
+            for (int j = 0; j < pathStrArray.length; j++) {
+                String[] positions = pathStrArray[j].split(",");
+                pathDataOne[j][0] = Float.parseFloat(positions[0].trim());
+                pathDataOne[j][1] = Float.parseFloat(positions[1].trim());
+                max = Math.max(max, pathDataOne[j][1]);
+                min = Math.min(min, pathDataOne[j][1]);
+            }
+            pathData.add(pathDataOne);
+        }
+        for (int i = 0; i < pathData.size(); i++) {
+            for (int j = 0; j < pathData.get(i).length; j++) {
+                pathData.get(i)[j][1] = max - (pathData.get(i)[j][1] - min);
+            }
+        }
+        return pathData;
+    }
+
+    /**
+     * 每次read最多返回chunkSize个字节
+     */
+    static final class ChunkedInputStream extends ByteArrayInputStream {
+        private final int chunkSize;
+
+        ChunkedInputStream(byte[] bytes, int chunkSize) {
+            super(bytes);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
+}
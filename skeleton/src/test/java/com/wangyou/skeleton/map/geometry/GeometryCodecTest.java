@@ -0,0 +1,144 @@
+package com.wangyou.skeleton.map.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * .msk的读写：浮点坐标逐位还原，整数坐标的偏差不超过半个量化步长
+ */
+public class GeometryCodecTest {
+
+    @Test
+    public void floatRoundTrip() throws IOException {
+        MapGeometry geometry = liangping();
+        MapGeometry decoded = GeometryCodec.read(ByteBuffer.wrap(encode(geometry, false)));
+        assertSameRings(geometry, decoded);
+        for (int i = 0; i < geometry.getPointCount(); i++) {
+            assertEquals(geometry.getX(i), decoded.getX(i), 0f);
+            assertEquals(geometry.getY(i), decoded.getY(i), 0f);
+        }
+    }
+
+    @Test
+    public void intRoundTrip() throws IOException {
+        MapGeometry geometry = liangping();
+        MapGeometry decoded = GeometryCodec.read(ByteBuffer.wrap(encode(geometry, true)));
+        assertSameRings(geometry, decoded);
+        float step = Math.max(geometry.getWidth(), geometry.getHeight()) / 0xFFFF;
+        // 还原时left + q * step本身还有一次float舍入
+        float tolerance = step / 2 + Math.ulp(Math.max(Math.abs(geometry.getRight()), Math.abs(geometry.getBottom())));
+        for (int i = 0; i < geometry.getPointCount(); i++) {
+            assertEquals(geometry.getX(i), decoded.getX(i), tolerance);
+            assertEquals(geometry.getY(i), decoded.getY(i), tolerance);
+        }
+    }
+
+    /**
+     * 整数坐标为16位，坐标部分的大小是float的一半
+     */
+    @Test
+    public void intCoordinatesAreSmaller() throws IOException {
+        MapGeometry geometry = liangping();
+        int floatSize = encode(geometry, false).length;
+        int intSize = encode(geometry, true).length;
+        assertEquals(geometry.getPointCount() * 4, floatSize - intSize);
+    }
+
+    @Test
+    public void multipleRingsAndFlags() throws IOException {
+        MapGeometry geometry = GeometryIndexTest.geometry(new float[]{0, 0, 10, 0, 10, 10},
+                new float[]{-5, -5, -1, -5, -1, -1, -5, -1}, new float[]{100, 100, 101, 100, 100, 101});
+        for (boolean intCoordinates : new boolean[]{false, true}) {
+            MapGeometry decoded = GeometryCodec.read(ByteBuffer.wrap(encode(geometry, intCoordinates)));
+            assertSameRings(geometry, decoded);
+            assertEquals(0, decoded.getFlags());
+        }
+    }
+
+    /**
+     * 从内存映射的位置读取：direct buffer，前面还有其他数据
+     */
+    @Test
+    public void directBufferWithOffset() throws IOException {
+        MapGeometry geometry = liangping();
+        byte[] bytes = encode(geometry, false);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 16);
+        buffer.position(16);
+        buffer.put(bytes);
+        buffer.position(16);
+        assertTrue(GeometryCodec.isEncoded(buffer));
+        MapGeometry decoded = GeometryCodec.read(buffer);
+        assertEquals(16, buffer.position());
+        assertSameRings(geometry, decoded);
+        assertArrayEquals(Arrays.copyOf(geometry.getCoordinates(), geometry.getPointCount() * 2),
+                Arrays.copyOf(decoded.getCoordinates(), decoded.getPointCount() * 2), 0f);
+    }
+
+    @Test
+    public void emptyGeometry() throws IOException {
+        MapGeometry decoded = GeometryCodec.read(ByteBuffer.wrap(encode(new GeometryBuilder().build(0), true)));
+        assertEquals(0, decoded.getRingCount());
+        assertEquals(0, decoded.getPointCount());
+    }
+
+    @Test
+    public void rejectsInvalidData() throws IOException {
+        byte[] bytes = encode(liangping(), false);
+        assertFalse(GeometryCodec.isEncoded(ByteBuffer.wrap("106.1,30.2;106.3,30.4;106.5,30.1".getBytes())));
+        assertThrows(IllegalArgumentException.class,
+                () -> GeometryCodec.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1))));
+        byte[] wrongVersion = bytes.clone();
+        wrongVersion[4] = 99;
+        assertThrows(IllegalArgumentException.class, () -> GeometryCodec.read(ByteBuffer.wrap(wrongVersion)));
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> GeometryCodec.read(ByteBuffer.wrap(wrongMagic)));
+    }
+
+    @Test
+    public void assetNames() {
+        assertEquals("china_chongqing_liangping.msk", GeometryCodec.assetName("china_chongqing_liangping.txt"));
+        assertEquals("dir.v2/boundary.msk", GeometryCodec.assetName("dir.v2/boundary"));
+        assertEquals("chinahigh/xizang__tibet_.msk", GeometryCodec.vectorAssetName("chinahigh", "Xizang (Tibet) "));
+        assertEquals("chinahigh/guangxi_zhuang.msk", GeometryCodec.vectorAssetName("chinahigh", "Guangxi Zhuang"));
+    }
+
+    private static void assertSameRings(MapGeometry expected, MapGeometry actual) {
+        assertEquals(expected.getRingCount(), actual.getRingCount());
+        assertEquals(expected.getPointCount(), actual.getPointCount());
+        for (int i = 0; i <= expected.getRingCount(); i++) {
+            int expectedStart = i < expected.getRingCount() ? expected.getRingStart(i) : expected.getRingEnd(i - 1);
+            int actualStart = i < actual.getRingCount() ? actual.getRingStart(i) : actual.getRingEnd(i - 1);
+            assertEquals(expectedStart, actualStart);
+        }
+        assertEquals(expected.getFlags(), actual.getFlags());
+        assertEquals(expected.getLeft(), actual.getLeft(), 0f);
+        assertEquals(expected.getTop(), actual.getTop(), 0f);
+        assertEquals(expected.getRight(), actual.getRight(), 0f);
+        assertEquals(expected.getBottom(), actual.getBottom(), 0f);
+    }
+
+    private static byte[] encode(MapGeometry geometry, boolean intCoordinates) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GeometryCodec.write(geometry, outputStream, intCoordinates);
+        return outputStream.toByteArray();
+    }
+
+    static MapGeometry liangping() throws IOException {
+        try (InputStream inputStream = GeometryCodecTest.class.getClassLoader()
+                .getResourceAsStream("china_chongqing_liangping.txt")) {
+            return BoundaryParser.parse(inputStream);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.wangyou.skeleton.map.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * GeometryIndex与逐个区块的射线法比较，包括格子中心恰好在边或顶点上的情况
+ */
+public class GeometryIndexTest {
+    // 离边界太近的点两种方法的结果都可能是对的，不比较
+    private static final double BOUNDARY_DISTANCE = 1e-4;
+
+    @Test
+    public void triangleWithCenterOnEdge() {
+        assertMatchesBruteForce(geometry(new float[]{0, 0, 10, 0, 0, 10}), 20000);
+    }
+
+    @Test
+    public void bowtieWithCenterOnVertex() {
+        assertMatchesBruteForce(geometry(new float[]{0, 0, 10, 10, 10, 0, 0, 10}), 20000);
+        assertMatchesBruteForce(geometry(new float[]{0, 0, 10, 0, 0, 10, 10, 10}), 20000);
+    }
+
+    @Test
+    public void squareWithHole() {
+        MapGeometry geometry = geometry(new float[]{0, 0, 10, 0, 10, 10, 0, 10},
+                new float[]{2, 2, 8, 2, 8, 8, 2, 8});
+        assertMatchesBruteForce(geometry, 20000);
+        assertEquals(-1, GeometryIndex.build(geometry).findRing(5, 5));
+        assertEquals(0, GeometryIndex.build(geometry).findRing(1, 5));
+    }
+
+    /**
+     * 锯齿形，顶点都在整数和半整数上，多个格子的中心线会经过顶点和水平边
+     */
+    @Test
+    public void combWithVerticesOnGrid() {
+        int teeth = 64;
+        float[] coordinates = new float[(teeth * 2 + 3) * 2];
+        int size = 0;
+        for (int i = 0; i < teeth; i++) {
+            coordinates[size++] = i;
+            coordinates[size++] = 0;
+            coordinates[size++] = i + 0.5f;
+            coordinates[size++] = 8;
+        }
+        coordinates[size++] = teeth;
+        coordinates[size++] = 0;
+        coordinates[size++] = teeth;
+        coordinates[size++] = -2;
+        coordinates[size++] = 0;
+        coordinates[size] = -2;
+        assertMatchesBruteForce(geometry(coordinates), 20000);
+    }
+
+    @Test
+    public void overlappingRings() {
+        MapGeometry geometry = geometry(new float[]{0, 0, 6, 0, 6, 6, 0, 6},
+                new float[]{3, 3, 9, 3, 9, 9, 3, 9},
+                new float[]{0, 9, 9, 0, 9, 9});
+        assertMatchesBruteForce(geometry, 20000);
+    }
+
+    @Test
+    public void liangping() throws IOException {
+        MapGeometry geometry;
+        try (InputStream inputStream = getClass().getClassLoader()
+                .getResourceAsStream("china_chongqing_liangping.txt")) {
+            geometry = BoundaryParser.parse(inputStream);
+        }
+        assertMatchesBruteForce(geometry, 100000);
+    }
+
+    static MapGeometry geometry(float[]... rings) {
+        GeometryBuilder builder = new GeometryBuilder();
+        for (float[] ring : rings) {
+            builder.ring(ring, 0, ring.length / 2);
+        }
+        return builder.build(0);
+    }
+
+    private static void assertMatchesBruteForce(MapGeometry geometry, int queries) {
+        GeometryIndex index = GeometryIndex.build(geometry);
+        Random random = new Random(42);
+        double tolerance = BOUNDARY_DISTANCE * Math.max(geometry.getWidth(), geometry.getHeight());
+        int compared = 0;
+        for (int i = 0; i < queries; i++) {
+            float x = geometry.getLeft() + random.nextFloat() * geometry.getWidth();
+            float y = geometry.getTop() + random.nextFloat() * geometry.getHeight();
+            if (distanceToBoundary(geometry, x, y) < tolerance) {
+                continue;
+            }
+            assertEquals("(" + x + ", " + y + ")", bruteForce(geometry, x, y), index.findRing(x, y));
+            compared++;
+        }
+        assertTrue(compared > queries / 2);
+    }
+
+    /**
+     * 与findRing的约定相同：按even-odd规则，包含该点的区块数为奇数时返回序号最大的区块
+     */
+    private static int bruteForce(MapGeometry geometry, double x, double y) {
+        int count = 0;
+        int result = -1;
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            boolean inside = false;
+            int start = geometry.getRingStart(ring);
+            int end = geometry.getRingEnd(ring);
+            for (int i = start, j = end - 1; i < end; j = i++) {
+                double xi = geometry.getX(i);
+                double yi = geometry.getY(i);
+                double xj = geometry.getX(j);
+                double yj = geometry.getY(j);
+                if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                    inside = !inside;
+                }
+            }
+            if (inside) {
+                count++;
+                result = ring;
+            }
+        }
+        return count % 2 == 1 ? result : -1;
+    }
+
+    private static double distanceToBoundary(MapGeometry geometry, double x, double y) {
+        double min = Double.MAX_VALUE;
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            int start = geometry.getRingStart(ring);
+            int end = geometry.getRingEnd(ring);
+            for (int i = start, j = end - 1; i < end; j = i++) {
+                double x1 = geometry.getX(j);
+                double y1 = geometry.getY(j);
+                double dx = geometry.getX(i) - x1;
+                double dy = geometry.getY(i) - y1;
+                double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+                t = Math.max(0, Math.min(1, t));
+                min = Math.min(min, Math.hypot(x - x1 - t * dx, y - y1 - t * dy));
+            }
+        }
+        return min;
+    }
+}
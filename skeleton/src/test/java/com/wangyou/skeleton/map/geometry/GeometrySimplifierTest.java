@@ -0,0 +1,109 @@
+package com.wangyou.skeleton.map.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * 简化后去掉的每个点到保留的相邻两点连线的距离都不超过容差，首尾点保留
+ */
+public class GeometrySimplifierTest {
+
+    @Test
+    public void liangpingWithinTolerance() throws IOException {
+        MapGeometry geometry = GeometryCodecTest.liangping();
+        float size = Math.max(geometry.getWidth(), geometry.getHeight());
+        for (int resolution : new int[]{16, 64, 256, 1024, 4096, 16384}) {
+            assertWithinTolerance(geometry, size / resolution);
+        }
+    }
+
+    @Test
+    public void noisyRingsWithinTolerance() {
+        int pointCount = 20000;
+        float[] outer = new float[pointCount * 2];
+        float[] inner = new float[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            double angle = Math.PI * 2 * i / pointCount;
+            double r = 10 * (1 + 0.2 * Math.sin(13 * angle) + 0.01 * Math.sin(997 * angle));
+            outer[i * 2] = (float) (106.5 + Math.cos(angle) * r);
+            outer[i * 2 + 1] = (float) (30.5 + Math.sin(angle) * r);
+            if (i < pointCount / 2) {
+                inner[i * 2] = (float) (106.5 + Math.cos(angle * 2) * 2);
+                inner[i * 2 + 1] = (float) (30.5 + Math.sin(angle * 2) * 2);
+            }
+        }
+        MapGeometry geometry = GeometryIndexTest.geometry(outer, inner);
+        for (float tolerance : new float[]{1f, 0.1f, 0.01f, 0.001f}) {
+            assertWithinTolerance(geometry, tolerance);
+        }
+    }
+
+    @Test
+    public void unchangedWhenNothingRemoved() {
+        MapGeometry geometry = GeometryIndexTest.geometry(new float[]{0, 0, 10, 0, 10, 10, 0, 10});
+        assertSame(geometry, GeometrySimplifier.simplify(geometry, 0));
+        assertSame(geometry, GeometrySimplifier.simplify(geometry, 1));
+    }
+
+    @Test
+    public void collinearPointsRemoved() {
+        MapGeometry geometry = GeometryIndexTest.geometry(new float[]{0, 0, 1, 0, 2, 0, 3, 0, 4, 0, 4, 4, 0, 4});
+        MapGeometry simplified = GeometrySimplifier.simplify(geometry, 0.01f);
+        assertEquals(4, simplified.getPointCount());
+    }
+
+    private static void assertWithinTolerance(MapGeometry geometry, float tolerance) {
+        MapGeometry simplified = GeometrySimplifier.simplify(geometry, tolerance);
+        assertEquals(geometry.getRingCount(), simplified.getRingCount());
+        assertEquals(geometry.getFlags(), simplified.getFlags());
+        assertTrue(simplified.getPointCount() <= geometry.getPointCount());
+        // 简化时用float计算距离，留出舍入误差
+        double slack = tolerance * 1e-3 + Math.ulp(Math.max(Math.abs(geometry.getRight()), Math.abs(geometry.getBottom()))) * 4;
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            int start = geometry.getRingStart(ring);
+            int end = geometry.getRingEnd(ring);
+            int kept = simplified.getRingStart(ring);
+            int keptEnd = simplified.getRingEnd(ring);
+            assertSamePoint(geometry, start, simplified, kept);
+            assertSamePoint(geometry, end - 1, simplified, keptEnd - 1);
+            // 保留的点按顺序对应到原来的点
+            int previous = start;
+            for (int k = kept + 1; k < keptEnd; k++) {
+                int next = previous + 1;
+                while (geometry.getX(next) != simplified.getX(k) || geometry.getY(next) != simplified.getY(k)) {
+                    next++;
+                    assertTrue("kept point not found in ring " + ring, next < end);
+                }
+                for (int i = previous + 1; i < next; i++) {
+                    double distance = segmentDistance(geometry, i, previous, next);
+                    assertTrue("point " + i + " is " + distance + " away, tolerance " + tolerance,
+                            distance <= tolerance + slack);
+                }
+                previous = next;
+            }
+            assertEquals(end - 1, previous);
+        }
+    }
+
+    private static void assertSamePoint(MapGeometry expected, int expectedIndex, MapGeometry actual, int actualIndex) {
+        assertEquals(expected.getX(expectedIndex), actual.getX(actualIndex), 0f);
+        assertEquals(expected.getY(expectedIndex), actual.getY(actualIndex), 0f);
+    }
+
+    private static double segmentDistance(MapGeometry geometry, int point, int first, int last) {
+        double x = geometry.getX(point);
+        double y = geometry.getY(point);
+        double x1 = geometry.getX(first);
+        double y1 = geometry.getY(first);
+        double dx = geometry.getX(last) - x1;
+        double dy = geometry.getY(last) - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy) / lengthSquared)) : 0;
+        return Math.hypot(x - x1 - t * dx, y - y1 - t * dy);
+    }
+}
@@ -0,0 +1,114 @@
+package com.wangyou.skeleton.map.geometry;
+
+import static com.wangyou.skeleton.map.geometry.BoundaryParserTest.assertRingsEqual;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * GeoJSON和高德JSON的解析结果与同一份数据的txt格式逐个float比较
+ */
+public class JsonBoundaryParserTest {
+
+    @Test
+    public void amapPolyline() throws IOException {
+        String text = liangpingText();
+        String json = "{\"status\":\"1\",\"info\":\"OK\",\"count\":\"1\",\"districts\":[{\"citycode\":\"023\","
+                + "\"name\":\"梁平区\",\"center\":\"107.8,30.6\",\"level\":\"district\",\"districts\":[],"
+                + "\"polyline\":\"" + text + "\"}]}";
+        assertSameAsText(text, json);
+    }
+
+    @Test
+    public void geoJsonMultiPolygon() throws IOException {
+        String text = liangpingText();
+        StringBuilder coordinates = new StringBuilder("[");
+        for (String ring : text.split("\\|")) {
+            if (coordinates.length() > 1) {
+                coordinates.append(',');
+            }
+            coordinates.append("[[[").append(ring.replace(";", "],[")).append("]]]");
+        }
+        coordinates.append(']');
+        String json = "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\","
+                + "\"properties\":{\"name\":\"梁平区\",\"adcode\":500155},"
+                + "\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":" + coordinates + "}}]}";
+        assertSameAsText(text, json);
+    }
+
+    @Test
+    public void geoJsonPolygonWithHole() throws IOException {
+        assertSameAsText("0,0;10,0;10,10;0,10|2,2;8,2;8,8;2,8",
+                "{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[10,0],[10,10],[0,10]],"
+                        + "[[2,2],[8,2],[8,8],[2,8]]]}");
+    }
+
+    /**
+     * 海拔、Point、properties中同名的key、转义字符和true/false/null都不影响结果
+     */
+    @Test
+    public void unrelatedValuesIgnored() throws IOException {
+        String json = "{\n  \"type\": \"FeatureCollection\",\n  \"features\": [\n"
+                + "    {\"type\": \"Feature\", \"properties\": {\"coordinates\": \"1,2\", \"polyline\": 3,"
+                + " \"note\": \"a \\\"quoted\\\" \\u00e9 \\\\ ] } value\", \"flags\": [true, false, null],"
+                + " \"nested\": {\"coordinates\": {}}},\n"
+                + "     \"geometry\": {\"type\": \"Point\", \"coordinates\": [5, 5]}},\n"
+                + "    {\"type\": \"Feature\", \"properties\": null,\n"
+                + "     \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0, 100], [4, 0, 100.5],"
+                + " [4, 3, -1e2]]]}}\n  ]\n}\n";
+        assertSameAsText("0,0;4,0;4,3", json);
+    }
+
+    @Test
+    public void numberFormats() throws IOException {
+        assertSameAsText("-0.5,100;123456789.123456789,-3.4028235E38;0.000001,7;106.12345678901234567890,29.999999999999999",
+                "{\"coordinates\":[[[-0.5,1e2],[123456789.123456789,-3.4028235E38],[0.000001,7],"
+                        + "[106.12345678901234567890,29.999999999999999]]]}");
+    }
+
+    @Test
+    public void invalidDocuments() {
+        assertThrows(IOException.class, () -> JsonBoundaryParser.parse(stream("{\"type\":\"Point\",\"coordinates\":[1,2]}")));
+        assertThrows(IOException.class, () -> JsonBoundaryParser.parse(stream("{\"status\":\"0\"}")));
+        assertThrows(IOException.class, () -> JsonBoundaryParser.parse(stream("{\"coordinates\":[[[1,2],[3]]]}")));
+        assertThrows(IOException.class, () -> JsonBoundaryParser.parse(stream("{\"coordinates\":[[[1,2],[3,4]")));
+        assertThrows(IOException.class, () -> JsonBoundaryParser.parse(stream("{\"polyline\":\"1,2;3,4")));
+    }
+
+    @Test
+    public void jsonFileNames() {
+        assertTrue(JsonBoundaryParser.isJsonFile("china_chongqing_liangping.json"));
+        assertTrue(JsonBoundaryParser.isJsonFile("china_chongqing_liangping.geojson"));
+        assertFalse(JsonBoundaryParser.isJsonFile("china_chongqing_liangping.txt"));
+    }
+
+    private static void assertSameAsText(String text, String json) throws IOException {
+        List<float[][]> expected = BoundaryParser.parse(stream(text)).toList();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertRingsEqual(expected, JsonBoundaryParser.parse(new ByteArrayInputStream(bytes)).toList());
+        // 数字、key和polyline跨越多次read
+        for (int chunkSize : new int[]{1, 3, 7}) {
+            assertRingsEqual(expected, JsonBoundaryParser.parse(
+                    new BoundaryParserTest.ChunkedInputStream(bytes, chunkSize)).toList());
+        }
+    }
+
+    private static String liangpingText() throws IOException {
+        try (InputStream inputStream = JsonBoundaryParserTest.class.getClassLoader()
+                .getResourceAsStream("china_chongqing_liangping.txt")) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
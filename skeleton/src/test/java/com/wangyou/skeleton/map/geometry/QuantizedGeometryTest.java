@@ -0,0 +1,118 @@
+package com.wangyou.skeleton.map.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * 量化后每个点的偏差不超过step/2，量化后重复的相邻点被去掉，区块数不变
+ */
+public class QuantizedGeometryTest {
+
+    @Test
+    public void liangpingErrorWithinHalfStep() throws IOException {
+        MapGeometry geometry = GeometryCodecTest.liangping();
+        float size = Math.max(geometry.getWidth(), geometry.getHeight());
+        for (int pixels : new int[]{64, 480, 1080, 2400, 1 << 16}) {
+            assertErrorWithinHalfStep(geometry, size / pixels / 2);
+        }
+    }
+
+    /**
+     * 坐标远离原点、跨度大的区块，差值为负数和多字节varint的情况
+     */
+    @Test
+    public void largeCoordinates() {
+        float[] ring = new float[2000];
+        for (int i = 0; i < ring.length / 2; i++) {
+            double angle = Math.PI * 2 * i / (ring.length / 2);
+            ring[i * 2] = (float) (1e5 + Math.cos(angle) * 5e4 * (1 + (i % 7) * 0.01));
+            ring[i * 2 + 1] = (float) (-3e4 + Math.sin(angle * 3) * 2e4);
+        }
+        MapGeometry geometry = GeometryIndexTest.geometry(ring, new float[]{1e5f, -3e4f, 1.0001e5f, -3e4f, 1e5f, -2.99e4f});
+        for (float maxError : new float[]{1000, 10, 0.1f, 0.001f}) {
+            assertErrorWithinHalfStep(geometry, maxError);
+        }
+    }
+
+    /**
+     * 整个区块量化到同一个点时保留一个点
+     */
+    @Test
+    public void collapsedRingKeepsOnePoint() {
+        MapGeometry geometry = GeometryIndexTest.geometry(new float[]{0, 0, 100, 0, 100, 100},
+                new float[]{50, 50, 50.1f, 50, 50, 50.1f});
+        QuantizedGeometry quantized = QuantizedGeometry.encode(geometry, 1);
+        MapGeometry decoded = quantized.decode();
+        assertEquals(2, decoded.getRingCount());
+        assertEquals(1, decoded.getRingEnd(1) - decoded.getRingStart(1));
+        assertErrorWithinHalfStep(geometry, 1);
+    }
+
+    @Test
+    public void flagsPreserved() {
+        GeometryBuilder builder = new GeometryBuilder();
+        builder.ring(new float[]{0, 0, 1, 0, 1, 1}, 0, 3);
+        MapGeometry geometry = builder.build(MapGeometry.FLAG_LATITUDE_FLIPPED);
+        assertEquals(MapGeometry.FLAG_LATITUDE_FLIPPED, QuantizedGeometry.encode(geometry, 0.1f).decode().getFlags());
+    }
+
+    @Test
+    public void invalidMaxError() {
+        MapGeometry geometry = GeometryIndexTest.geometry(new float[]{0, 0, 1, 0, 1, 1});
+        assertThrows(IllegalArgumentException.class, () -> QuantizedGeometry.encode(geometry, 0));
+        assertThrows(IllegalArgumentException.class, () -> QuantizedGeometry.encode(geometry, Float.NaN));
+    }
+
+    private static void assertErrorWithinHalfStep(MapGeometry geometry, float maxError) {
+        QuantizedGeometry quantized = QuantizedGeometry.encode(geometry, maxError);
+        MapGeometry decoded = quantized.decode();
+        assertEquals(geometry.getRingCount(), decoded.getRingCount());
+        assertEquals(quantized.getPointCount(), decoded.getPointCount());
+        assertTrue(decoded.getPointCount() <= geometry.getPointCount());
+        assertTrue(quantized.getMaxError() >= maxError);
+        // 量化和还原都是float运算，留出几个ulp的舍入误差
+        float magnitude = Math.max(Math.max(Math.abs(geometry.getLeft()), Math.abs(geometry.getRight())),
+                Math.max(Math.abs(geometry.getTop()), Math.abs(geometry.getBottom())));
+        double bound = quantized.getMaxError() + Math.ulp(magnitude) * 4;
+        float step = quantized.getMaxError() * 2;
+        for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+            int end = geometry.getRingEnd(ring);
+            int decodedEnd = decoded.getRingEnd(ring);
+            // 原来的点按顺序对应到解码后的点，被去掉的点与前一个保留的点量化结果相同
+            int k = decoded.getRingStart(ring) - 1;
+            long last = Long.MIN_VALUE;
+            for (int i = geometry.getRingStart(ring); i < end; i++) {
+                long units = units(geometry, i, step);
+                if (units != last) {
+                    k++;
+                    last = units;
+                }
+                double error = error(geometry, i, decoded, k);
+                assertTrue("ring " + ring + " point " + i + " error " + error + " > " + bound, error <= bound);
+            }
+            assertEquals(decodedEnd - 1, k);
+        }
+    }
+
+    /**
+     * 与QuantizedGeometry.encode相同的量化，两个方向合并为一个值
+     */
+    private static long units(MapGeometry geometry, int index, float step) {
+        int x = Math.round((geometry.getX(index) - geometry.getLeft()) / step);
+        int y = Math.round((geometry.getY(index) - geometry.getTop()) / step);
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 两个方向中较大的偏差
+     */
+    private static double error(MapGeometry expected, int expectedIndex, MapGeometry actual, int actualIndex) {
+        return Math.max(Math.abs((double) expected.getX(expectedIndex) - actual.getX(actualIndex)),
+                Math.abs((double) expected.getY(expectedIndex) - actual.getY(actualIndex)));
+    }
+}